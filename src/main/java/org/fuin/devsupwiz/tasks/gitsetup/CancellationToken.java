@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signals long running operations that they should stop as soon as
+ * possible. A token can only be cancelled once and never be reset.
+ */
+public final class CancellationToken {
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+
+    /**
+     * Requests cancellation. Calling this method more than once has no
+     * further effect.
+     */
+    public final void cancel() {
+        latch.countDown();
+    }
+
+    /**
+     * Determines if cancellation was requested.
+     * 
+     * @return TRUE if {@link #cancel()} was called.
+     */
+    public final boolean isCancelled() {
+        return latch.getCount() == 0;
+    }
+
+    /**
+     * Waits until cancellation is requested or the time elapsed. Useful as a
+     * replacement for {@link Thread#sleep(long)} that ends early.
+     * 
+     * @param millis
+     *            Maximum number of milliseconds to wait.
+     * 
+     * @return TRUE if cancellation was requested or the thread was
+     *         interrupted, FALSE if the time elapsed.
+     */
+    public final boolean await(final long millis) {
+        try {
+            return latch.await(millis, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return true;
+        }
+    }
+
+}
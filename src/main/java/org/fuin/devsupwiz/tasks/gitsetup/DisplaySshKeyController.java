@@ -118,8 +118,22 @@ public class DisplaySshKeyController implements Initializable, SetupController {
             LOG.debug("Referenced task executed: {}", this.task.getTaskRef());
 
             name.setText(keyGenTask.getName());
-            host.setText(keyGenTask.getHost());
-            key.setText(keyGenTask.getPublicKey());
+            final List<String> hosts = keyGenTask.getHosts();
+            final List<String> keys = keyGenTask.getPublicKeys();
+            host.setText(String.join(", ", hosts));
+            if (keys.size() == 1) {
+                key.setText(keys.get(0));
+            } else {
+                // One block per host
+                final StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < keys.size() && i < hosts.size(); i++) {
+                    if (i > 0) {
+                        sb.append("\n\n");
+                    }
+                    sb.append(hosts.get(i)).append(":\n").append(keys.get(i));
+                }
+                key.setText(sb.toString());
+            }
 
             if ("github.com".equals(keyGenTask.getHost())) {
                 url = "https://github.com/settings/keys";
@@ -40,6 +40,7 @@ import org.fuin.devsupwiz.common.UserInput;
 import javafx.fxml.FXML;
 import javafx.geometry.Pos;
 import javafx.scene.control.Label;
+import javafx.scene.control.PasswordField;
 import javafx.scene.control.TextField;
 
 /**
@@ -54,6 +55,9 @@ public class GenerateSshKeyController implements SetupController {
     @FXML
     private TextField host;
 
+    @FXML
+    private PasswordField passphrase;
+
     @FXML
     private Label title;
 
@@ -71,7 +75,7 @@ public class GenerateSshKeyController implements SetupController {
         }
         task = (GenerateSshKeyTask) setupTask;
 
-        host.setText(task.getHost());
+        host.setText(String.join(", ", task.getHosts()));
 
         refreshStatus();
     }
@@ -113,12 +117,33 @@ public class GenerateSshKeyController implements SetupController {
     @Override
     public void save() {
         task.setName(name.getText());
-        task.setHost(host.getText());
+        task.setHosts(parseHosts(host.getText()));
+        task.setPassphrase(passphrase.getText().toCharArray());
     }
     
     private void displayData() {
         name.setText(task.getName());
-        host.setText(task.getHost());
+        host.setText(String.join(", ", task.getHosts()));
+    }
+
+    /**
+     * Splits the text of the host field.
+     * 
+     * @param text
+     *            One or more hosts separated by comma or whitespace.
+     * 
+     * @return Host names.
+     */
+    static List<String> parseHosts(final String text) {
+        final List<String> hosts = new ArrayList<>();
+        if (text != null) {
+            for (final String h : text.split("[,\\s]+")) {
+                if (!h.isEmpty()) {
+                    hosts.add(h);
+                }
+            }
+        }
+        return hosts;
     }
 
     @Override
@@ -132,6 +157,10 @@ public class GenerateSshKeyController implements SetupController {
         displayData();
         name.setDisable(alreadyExecuted);
         host.setDisable(alreadyExecuted);
+        passphrase.setDisable(alreadyExecuted);
+        if (alreadyExecuted) {
+            passphrase.setText("");
+        }
         if (alreadyExecuted) {
             title.setGraphic(createIconOk24x24());
         } else {
@@ -17,28 +17,41 @@
  */
 package org.fuin.devsupwiz.tasks.gitsetup;
 
-import static java.nio.file.attribute.PosixFilePermission.OWNER_READ;
-import static java.nio.file.attribute.PosixFilePermission.OWNER_WRITE;
 import static org.fuin.devsupwiz.common.DevSupWizUtils.MDC_TASK_KEY;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
-import java.security.Security;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import javax.enterprise.inject.Vetoed;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.fuin.devsupwiz.common.AbstractSetupTask;
-import org.fuin.devsupwiz.common.DevSupWizUtils;
 import org.fuin.devsupwiz.common.LogOutputStream;
 import org.fuin.devsupwiz.common.MultipleInstancesSetupTask;
 import org.fuin.devsupwiz.common.ShellCommandExecutor;
@@ -50,7 +63,8 @@ import org.slf4j.MDC;
 import org.slf4j.event.Level;
 
 /**
- * Generates an SSH key pair and adds it to the "~/.ssh/config" file.
+ * Generates an SSH key pair per host and adds them to the "~/.ssh/config"
+ * file.
  */
 @Vetoed
 @XmlAccessorType(XmlAccessType.FIELD)
@@ -61,9 +75,22 @@ public final class GenerateSshKeyTask extends AbstractSetupTask
     /** Unique normalized name of the task (for example used for FXML file). */
     static final String KEY = "generate-ssh-key";
 
+    /** Time unlocking a passphrase protected key takes by default. */
+    public static final int DEFAULT_UNLOCK_MILLIS = 500;
+
     private static final Logger LOG = LoggerFactory
             .getLogger(GenerateSshKeyTask.class);
 
+    /** Seconds "ssh-keyscan" waits for a host. */
+    private static final int KEYSCAN_TIMEOUT_SECONDS = 5;
+
+    /** Seconds "ssh-keyscan" may run in total for all hosts. */
+    private static final int KEYSCAN_MAX_SECONDS = 60;
+
+    /** Line with host, key type and Base64 encoded key. */
+    private static final String HOST_KEY_PATTERN = "[^\\s#]+ "
+            + "[A-Za-z0-9@.\\-]+ [A-Za-z0-9+/]+={0,2}";
+
     @NotEmpty
     @XmlAttribute(name = "id")
     private String id;
@@ -78,12 +105,38 @@ public final class GenerateSshKeyTask extends AbstractSetupTask
     @XmlAttribute(name = "host")
     private String host;
 
+    @XmlElement(name = "host")
+    private List<String> hosts;
+
+    @Pattern(regexp = SshKeyType.PATTERN)
+    @XmlAttribute(name = "key-type")
+    private String keyType;
+
+    @Min(1024)
+    @XmlAttribute(name = "key-size")
+    private Integer keySize;
+
+    @Pattern(regexp = SshKeyService.RANDOM_PATTERN)
+    @XmlAttribute(name = "random")
+    private String random;
+
+    @Min(0)
+    @XmlAttribute(name = "unlock-millis")
+    private Integer unlockMillis;
+
     @XmlAttribute(name = "public-key")
     private String publicKey;
 
+    @XmlElement(name = "public-key")
+    private List<String> publicKeys;
+
     @NotNull(message = "sshDir==null")
     private transient File sshDir;
 
+    private transient List<GeneratedSshKeyPair> generated;
+
+    private transient char[] passphrase;
+
     /**
      * Default constructor for JAXB.
      */
@@ -168,7 +221,172 @@ public final class GenerateSshKeyTask extends AbstractSetupTask
     }
 
     /**
-     * Returns the public key that was generated.
+     * Returns all hosts a key pair is generated for. The first one is the
+     * host attribute, the others are defined as child elements.
+     * 
+     * @return Host names without duplicates - Never <code>null</code>.
+     */
+    public final List<String> getHosts() {
+        final List<String> list = new ArrayList<>();
+        if (host != null) {
+            list.add(host);
+        }
+        if (hosts != null) {
+            for (final String h : hosts) {
+                if (!list.contains(h)) {
+                    list.add(h);
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Sets all hosts a key pair is generated for.
+     * 
+     * @param hosts
+     *            Host names (Domain without "www"). The first one becomes the
+     *            host attribute.
+     */
+    public final void setHosts(@NotNull final List<String> hosts) {
+        if (hosts.isEmpty()) {
+            this.host = null;
+            this.hosts = null;
+        } else {
+            this.host = hosts.get(0);
+            this.hosts = hosts.size() == 1 ? null
+                    : new ArrayList<>(hosts.subList(1, hosts.size()));
+        }
+    }
+
+    /**
+     * Returns the type of the key pair.
+     * 
+     * @return Type like "ed25519" or "ecdsa-p256". In case the value is not
+     *         set this defaults to "rsa".
+     */
+    public final String getKeyType() {
+        if (keyType == null) {
+            return SshKeyType.RSA.getName();
+        }
+        return keyType;
+    }
+
+    /**
+     * Sets the type of the key pair.
+     * 
+     * @param keyType
+     *            One of "rsa", "ed25519", "ecdsa-p256", "ecdsa-p384" or
+     *            "ecdsa-p521" or <code>null</code> for the default.
+     */
+    public final void setKeyType(
+            @Pattern(regexp = SshKeyType.PATTERN) final String keyType) {
+        this.keyType = keyType;
+    }
+
+    /**
+     * Returns the size of RSA keys.
+     * 
+     * @return Key size in bits. In case the value is not set this defaults to
+     *         {@link SshKeyPairGenerator#DEFAULT_RSA_KEY_SIZE}.
+     */
+    public final int getKeySize() {
+        if (keySize == null) {
+            return SshKeyPairGenerator.DEFAULT_RSA_KEY_SIZE;
+        }
+        return keySize;
+    }
+
+    /**
+     * Sets the size of RSA keys. The size of the other key types is defined
+     * by their curve.
+     * 
+     * @param keySize
+     *            Key size in bits like 4096 or <code>null</code> for the
+     *            default.
+     */
+    public final void setKeySize(@Min(1024) final Integer keySize) {
+        this.keySize = keySize;
+    }
+
+    /**
+     * Returns the source of randomness used for generating the key pair.
+     * 
+     * @return Strategy like "NativePRNGNonBlocking" or "DRBG". In case the
+     *         value is not set this defaults to "default".
+     */
+    public final String getRandom() {
+        if (random == null) {
+            return SshKeyService.RANDOM_DEFAULT;
+        }
+        return random;
+    }
+
+    /**
+     * Sets the source of randomness used for generating the key pair. On
+     * freshly booted virtual machines the default may block while waiting
+     * for entropy, "NativePRNGNonBlocking" never does.
+     * 
+     * @param random
+     *            One of "default", "NativePRNGNonBlocking" or "DRBG" or
+     *            <code>null</code> for the default.
+     */
+    public final void setRandom(
+            @Pattern(regexp = SshKeyService.RANDOM_PATTERN) final String random) {
+        this.random = random;
+    }
+
+    /**
+     * Returns the time unlocking a passphrase protected private key should
+     * take. The number of key derivation rounds is calibrated on the local
+     * machine to match it.
+     * 
+     * @return Milliseconds. In case the value is not set this defaults to
+     *         {@link #DEFAULT_UNLOCK_MILLIS}.
+     */
+    public final int getUnlockMillis() {
+        if (unlockMillis == null) {
+            return DEFAULT_UNLOCK_MILLIS;
+        }
+        return unlockMillis;
+    }
+
+    /**
+     * Sets the time unlocking a passphrase protected private key should take.
+     * 
+     * @param unlockMillis
+     *            Milliseconds or <code>null</code> for the default.
+     */
+    public final void setUnlockMillis(@Min(0) final Integer unlockMillis) {
+        this.unlockMillis = unlockMillis;
+    }
+
+    /**
+     * Sets the passphrase that protects the private key. It is never stored
+     * in the configuration and is cleared after the task was executed.
+     * 
+     * @param passphrase
+     *            Passphrase or <code>null</code> (or empty) for a private key
+     *            without protection.
+     */
+    public final void setPassphrase(final char[] passphrase) {
+        if (this.passphrase != null) {
+            Arrays.fill(this.passphrase, ' ');
+        }
+        this.passphrase = passphrase;
+    }
+
+    /**
+     * Determines if the private key will be protected by a passphrase.
+     * 
+     * @return TRUE if a passphrase is set.
+     */
+    public final boolean hasPassphrase() {
+        return passphrase != null && passphrase.length > 0;
+    }
+
+    /**
+     * Returns the public key that was generated (for the first host).
      * 
      * @return SSH public key.
      */
@@ -176,6 +394,59 @@ public final class GenerateSshKeyTask extends AbstractSetupTask
         return publicKey;
     }
 
+    /**
+     * Returns the public keys that were generated.
+     * 
+     * @return SSH public keys in the same order as the hosts returned by
+     *         {@link #getHosts()} - Never <code>null</code>.
+     */
+    public final List<String> getPublicKeys() {
+        final List<String> list = new ArrayList<>();
+        if (publicKey != null) {
+            list.add(publicKey);
+        }
+        if (publicKeys != null) {
+            list.addAll(publicKeys);
+        }
+        return list;
+    }
+
+    /**
+     * Starts generating the key pairs in the background as soon as the
+     * configuration is loaded, so they are usually ready when the task is
+     * executed. Without any host only the generator is prepared. Nothing is
+     * generated for a task that was already executed. In case there is no
+     * host attribute, the first host element becomes the host attribute.
+     * Called by JAXB.
+     * 
+     * @param unmarshaller
+     *            Unmarshaller.
+     * @param parent
+     *            Parent object.
+     */
+    final void afterUnmarshal(final Unmarshaller unmarshaller,
+            final Object parent) {
+        if (host == null && hosts != null && !hosts.isEmpty()) {
+            host = hosts.remove(0);
+        }
+        if (alreadyExecuted()) {
+            return;
+        }
+        final SshKeyPairPool pool = SshKeyPairPool.getInstance();
+        try {
+            if (getHosts().isEmpty()) {
+                // Hosts are entered later by the user
+                pool.warmUp(getSshKeyType(), getKeySize(), getRandom());
+            }
+            for (int i = 0; i < getHosts().size(); i++) {
+                pool.prefetch(getSshKeyType(), getKeySize(), getRandom());
+            }
+        } catch (final IllegalArgumentException ex) {
+            // Invalid key type is reported by the validation
+            LOG.debug("No key pair pre-generated: {}", ex.getMessage());
+        }
+    }
+
     @Override
     public final void execute() {
 
@@ -184,15 +455,15 @@ public final class GenerateSshKeyTask extends AbstractSetupTask
 
             init();
 
-            final SshKeyPairGenerator generator = generateKeys(sshDir,
-                    getPrivateKeyFile(), getPublicKeyFile());
-            appendToConfig(getPrivateKeyFile());
-            publicKey = generator.getPublicKey();
-
-            // Only add in productiion mode (not test)
-            if (sshDir.equals(getDefaultSshDir())) {
-                addToSshKnownHosts(host);
+            final List<String> keys;
+            try {
+                keys = generateKeys(getHosts());
+            } finally {
+                setPassphrase(null);
             }
+            publicKey = keys.get(0);
+            publicKeys = keys.size() == 1 ? null
+                    : new ArrayList<>(keys.subList(1, keys.size()));
 
         } finally {
             MDC.remove(MDC_TASK_KEY);
@@ -200,6 +471,17 @@ public final class GenerateSshKeyTask extends AbstractSetupTask
 
     }
 
+    /**
+     * Returns the key pairs generated by the last execution together with the
+     * time needed for seeding and generating them.
+     * 
+     * @return Key pairs in the order of the hosts or <code>null</code> if the
+     *         task was not executed.
+     */
+    final List<GeneratedSshKeyPair> getGenerated() {
+        return generated;
+    }
+
     @Override
     public final String getResource() {
         return this.getClass().getPackage().getName().replace('.', '/') + "/"
@@ -230,30 +512,29 @@ public final class GenerateSshKeyTask extends AbstractSetupTask
         return new File(sshDir, "config");
     }
     
-    private File getSshHostDir() {
-        return new File(sshDir, host);
+    private File getSshNameDir(final String host) {
+        return new File(new File(sshDir, host), name);
+    }
+    
+    private SshKeyType getSshKeyType() {
+        return SshKeyType.fromName(getKeyType());
     }
 
-    private final File getSshNameDir() {
-        return new File(getSshHostDir(), name);
+    private File getPrivateKeyFile(final String host) {
+        return new File(getSshNameDir(host), getSshKeyType().getFileName());
     }
-    
-    private File getPrivateKeyFile() {
-        return new File(getSshNameDir(), "id_rsa");
+
+    private File getPublicKeyFile(final String host) {
+        return new File(getSshNameDir(host),
+                getSshKeyType().getFileName() + ".pub");
     }
 
-    private File getPublicKeyFile() {
-        return new File(getSshNameDir(), "id_rsa.pub");
+    private File getKnownHostsFile() {
+        return new File(sshDir, "known_hosts");
     }
 
     private void init() {
 
-        // Make sure BC is available
-        if (Security.getProvider("BC") == null) {
-            Security.addProvider(
-                    new org.bouncycastle.jce.provider.BouncyCastleProvider());
-        }
-
         // Ensure SSH directory exists
         if (!sshDir.exists()) {
             LOG.debug("Directory does not exist: " + sshDir);
@@ -267,48 +548,226 @@ public final class GenerateSshKeyTask extends AbstractSetupTask
 
     }
 
-    private SshKeyPairGenerator generateKeys(final File sshDir,
-            final File prvKeyFile, final File pubKeyFile) {
-        try {
-            final SshKeyPairGenerator generator = new SshKeyPairGenerator(name);
-
-            FileUtils.writeStringToFile(prvKeyFile, generator.getPrivateKey(),
-                    Charset.forName("us-ascii"));
+    /**
+     * Generates a key pair per host and writes the key files, the entries in
+     * the SSH configuration and (In production mode) the host keys in one
+     * batch.
+     * 
+     * @param hosts
+     *            Hosts to generate key pairs for.
+     * 
+     * @return Public keys in the order of the hosts.
+     */
+    private List<String> generateKeys(final List<String> hosts) {
+        final SshKeyType type = getSshKeyType();
+        final long start = System.nanoTime();
+        generated = takeKeyPairs(type, hosts.size());
+        LOG.info("Got {} key pair(s) after {} ms: {}", hosts.size(),
+                (System.nanoTime() - start) / 1000000, generated);
+
+        final int rounds = hasPassphrase()
+                ? OpenSshPrivateKeyWriter.calibrateRounds(getUnlockMillis())
+                : 0;
+        final SshFileBatch batch = new SshFileBatch();
+        final List<String> keys = new ArrayList<>();
+        final String lf = System.lineSeparator();
+        final StringBuilder config = new StringBuilder();
+        for (int i = 0; i < hosts.size(); i++) {
+            final String host = hosts.get(i);
+            final SshKeyPairGenerator generator = new SshKeyPairGenerator(name,
+                    type, generated.get(i).getKeyPair());
+            final File prvKeyFile = getPrivateKeyFile(host);
             // Only owner is allowed to access private key
-            DevSupWizUtils.setFilePermissions(prvKeyFile, OWNER_READ,
-                    OWNER_WRITE);
-
-            FileUtils.writeStringToFile(pubKeyFile, generator.getPublicKey(),
-                    Charset.forName("us-ascii"));
+            batch.write(prvKeyFile, true, channel -> {
+                final OutputStream out = new BufferedOutputStream(
+                        Channels.newOutputStream(channel));
+                generator.writePrivateKey(out, passphrase, rounds);
+                out.flush();
+            });
+            batch.write(getPublicKeyFile(host), false,
+                    generator::writePublicKey);
+            config.append("Host " + host + lf + "    User " + name + lf
+                    + "    HostName " + host + lf + "    IdentityFile "
+                    + prvKeyFile + lf);
+            keys.add(generator.getPublicKey());
+        }
 
-            LOG.info("Successfully generated and saved ssh keys: {} {}",
-                    prvKeyFile, pubKeyFile);
+        // Only add in production mode (not test)
+        if (sshDir.equals(getDefaultSshDir())) {
+            final byte[] hostKeys = scanHostKeys(hosts, getKnownHostsFile());
+            batch.append(getKnownHostsFile(), false,
+                    channel -> write(channel, hostKeys));
+        }
+        // Config last, so it never points to a missing key file
+        final byte[] entries = config.toString()
+                .getBytes(Charset.defaultCharset());
+        batch.append(getConfigFile(), false, channel -> write(channel, entries));
 
-            return generator;
+        try {
+            batch.commit();
         } catch (final IOException ex) {
             throw new RuntimeException(
                     "Wasn't able to write ssh keys to: " + sshDir, ex);
         }
+        LOG.info("Successfully generated and saved ssh keys for {} and "
+                + "added them to ssh config: {}", hosts, getConfigFile());
+        return keys;
     }
 
-    private void appendToConfig(final File prvKeyFile) {
-        try {
+    /**
+     * Takes the key pairs from the pool. As most of them are usually
+     * pre-generated already, this means waiting for the ones still in
+     * progress. Missing key pairs are requested from the pool first, so they
+     * are generated concurrently instead of one after another.
+     * 
+     * @param type
+     *            Type of the key pairs.
+     * @param count
+     *            Number of key pairs.
+     * 
+     * @return Key pairs.
+     */
+    private List<GeneratedSshKeyPair> takeKeyPairs(final SshKeyType type,
+            final int count) {
+        final SshKeyPairPool pool = SshKeyPairPool.getInstance();
+        if (count > 1) {
+            final int missing = count
+                    - pool.size(type, getKeySize(), getRandom());
+            for (int i = 0; i < missing; i++) {
+                pool.prefetch(type, getKeySize(), getRandom());
+            }
+        }
+        final List<GeneratedSshKeyPair> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(pool.take(type, getKeySize(), getRandom()));
+        }
+        return result;
+    }
 
-            final String lf = System.lineSeparator();
-            final String str = "Host " + host + lf + "    User " + name + lf
-                    + "    HostName " + host + lf + "    IdentityFile "
-                    + prvKeyFile + lf;
+    /**
+     * Reads the public keys of all hosts that are not known yet with a single
+     * "ssh-keyscan" call. Hosts that are already in the "known_hosts" file
+     * (Also as hashed entry or together with other host names) are not
+     * scanned and hosts that cannot be reached are skipped. Only standard
+     * output is used for the keys, the messages written to standard error are
+     * logged.
+     * 
+     * @param hosts
+     *            Hosts to scan.
+     * @param knownHostsFile
+     *            Existing "known_hosts" file.
+     * 
+     * @return Lines to append to the "known_hosts" file.
+     */
+    static byte[] scanHostKeys(@NotNull final List<String> hosts,
+            @NotNull final File knownHostsFile) {
+        final List<String> unknown = new ArrayList<>();
+        for (final String host : hosts) {
+            if (isKnownHost(host, knownHostsFile)) {
+                LOG.info("Host key of {} is already known", host);
+            } else {
+                unknown.add(host);
+            }
+        }
+        if (unknown.isEmpty()) {
+            return new byte[0];
+        }
+        final List<String> cmd = new ArrayList<>();
+        cmd.add("ssh-keyscan");
+        cmd.add("-T");
+        cmd.add("" + KEYSCAN_TIMEOUT_SECONDS);
+        cmd.add("--");
+        cmd.addAll(unknown);
+        try {
+            final Set<String> known = new HashSet<>();
+            if (knownHostsFile.exists()) {
+                known.addAll(Files.readAllLines(knownHostsFile.toPath(),
+                        StandardCharsets.UTF_8));
+            }
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final int exitCode = ProcessCommand.execute(cmd,
+                    knownHostsFile.getAbsoluteFile().getParentFile(),
+                    KEYSCAN_MAX_SECONDS, out, new LogOutputStream(Level.INFO));
+            LOG.info("Executing {} returned # {}", cmd, exitCode);
+            final List<String> lines = IOUtils.readLines(
+                    new ByteArrayInputStream(out.toByteArray()),
+                    StandardCharsets.UTF_8);
+            return filterHostKeys(lines, known)
+                    .getBytes(StandardCharsets.UTF_8);
+        } catch (final IOException | RuntimeException ex) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new RuntimeException(
+                        "Interrupted while scanning host keys", ex);
+            }
+            LOG.warn("Failed to scan host keys: {}", ex.getMessage());
+            return new byte[0];
+        }
+    }
 
-            try (final FileWriter fw = new FileWriter(getConfigFile(), true)) {
-                fw.write(str);
+    /**
+     * Determines if a "known_hosts" file contains a key for a host. The file
+     * is searched with "ssh-keygen -F", which also finds hashed entries and
+     * entries with several host names.
+     * 
+     * @param host
+     *            Host to find.
+     * @param knownHostsFile
+     *            Existing "known_hosts" file.
+     * 
+     * @return TRUE if there is at least one key for the host.
+     */
+    static boolean isKnownHost(@NotEmpty final String host,
+            @NotNull final File knownHostsFile) {
+        if (!knownHostsFile.exists()) {
+            return false;
+        }
+        try {
+            return ProcessCommand.execute(
+                    Arrays.asList("ssh-keygen", "-F", host, "-f",
+                            knownHostsFile.getAbsolutePath()),
+                    knownHostsFile.getAbsoluteFile().getParentFile(),
+                    KEYSCAN_MAX_SECONDS, new ByteArrayOutputStream(),
+                    new LogOutputStream(Level.DEBUG)) == 0;
+        } catch (final RuntimeException ex) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw ex;
             }
+            LOG.warn("Failed to search {} for {}: {}", knownHostsFile, host,
+                    ex.getMessage());
+            return false;
+        }
+    }
 
-            LOG.info("Successfully added entry to ssh config: {}",
-                    getConfigFile());
+    /**
+     * Returns the well formed host key lines that are not known yet. Anything
+     * else is logged and skipped, so "known_hosts" never receives a message
+     * or a partial line.
+     * 
+     * @param lines
+     *            Output of "ssh-keyscan".
+     * @param known
+     *            Lines already in the "known_hosts" file. New lines are added.
+     * 
+     * @return Lines to append to the "known_hosts" file.
+     */
+    static String filterHostKeys(@NotNull final List<String> lines,
+            @NotNull final Set<String> known) {
+        final StringBuilder sb = new StringBuilder();
+        for (final String line : lines) {
+            if (!line.matches(HOST_KEY_PATTERN)) {
+                LOG.debug("Skipped line: {}", line);
+            } else if (known.add(line)) {
+                sb.append(line).append('\n');
+            }
+        }
+        return sb.toString();
+    }
 
-        } catch (final IOException ex) {
-            throw new RuntimeException(
-                    "Wasn't able to write ssh config: " + getConfigFile(), ex);
+    private static void write(final FileChannel channel, final byte[] data)
+            throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
         }
     }
 
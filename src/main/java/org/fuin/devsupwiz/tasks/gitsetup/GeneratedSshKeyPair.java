@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.security.KeyPair;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Key pair together with the information how it was generated.
+ */
+final class GeneratedSshKeyPair {
+
+    private final KeyPair keyPair;
+
+    private final String random;
+
+    private final long seedNanos;
+
+    private final boolean preSeeded;
+
+    private final long generationNanos;
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param keyPair
+     *            Generated key pair.
+     * @param random
+     *            Requested source of randomness.
+     * @param seedNanos
+     *            Time needed to create and seed the random number generator.
+     * @param preSeeded
+     *            TRUE if the generator was seeded before, so the seed time
+     *            was not spent generating this key pair.
+     * @param generationNanos
+     *            Time needed to generate the key pair.
+     */
+    GeneratedSshKeyPair(@NotNull final KeyPair keyPair,
+            @NotEmpty final String random, final long seedNanos,
+            final boolean preSeeded, final long generationNanos) {
+        super();
+        this.keyPair = keyPair;
+        this.random = random;
+        this.seedNanos = seedNanos;
+        this.preSeeded = preSeeded;
+        this.generationNanos = generationNanos;
+    }
+
+    /**
+     * Returns the key pair.
+     * 
+     * @return Generated key pair.
+     */
+    KeyPair getKeyPair() {
+        return keyPair;
+    }
+
+    /**
+     * Returns the requested source of randomness.
+     * 
+     * @return Strategy like "NativePRNGNonBlocking".
+     */
+    String getRandom() {
+        return random;
+    }
+
+    /**
+     * Returns the time needed to create and seed the random number generator.
+     * 
+     * @return Nanoseconds (Also if the generator was seeded earlier).
+     */
+    long getSeedNanos() {
+        return seedNanos;
+    }
+
+    /**
+     * Returns if the generator was seeded before this key pair was requested.
+     * 
+     * @return TRUE if the seed time was paid earlier, for example while
+     *         warming up.
+     */
+    boolean isPreSeeded() {
+        return preSeeded;
+    }
+
+    /**
+     * Returns the time needed to generate the key pair.
+     * 
+     * @return Nanoseconds.
+     */
+    long getGenerationNanos() {
+        return generationNanos;
+    }
+
+    @Override
+    public final String toString() {
+        return String.format("%s key pair in %.1f ms (Seeding %.1f ms%s, %s)",
+                keyPair.getPublic().getAlgorithm(),
+                generationNanos / 1000000.0, seedNanos / 1000000.0,
+                preSeeded ? " earlier" : "", random);
+    }
+
+}
@@ -20,28 +20,53 @@ package org.fuin.devsupwiz.tasks.gitsetup;
 import static org.fuin.devsupwiz.common.DevSupWizFxUtils.createIconOk24x24;
 import static org.fuin.devsupwiz.common.DevSupWizFxUtils.createIconTodo24x24;
 
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.fuin.devsupwiz.common.Loggable;
 import org.fuin.devsupwiz.common.SetupController;
 import org.fuin.devsupwiz.common.SetupTask;
 
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TextField;
+import javafx.scene.layout.VBox;
 
 /**
- * UI controller for git clone task.
+ * UI controller for git clone task. The clone threads only update the state
+ * of the rows. The list itself is refreshed on the UI thread at most a few
+ * times per second, so lots of progress events from parallel clones do not
+ * flood the UI thread. The refresh timer only runs while something changes
+ * or clones are in progress and stops when the page is left.
  */
 @Loggable
-public class GitCloneController implements SetupController {
+public class GitCloneController implements Initializable, SetupController {
+
+    /** Minimum time between two refreshes of the list. */
+    private static final long REFRESH_NANOS = TimeUnit.MILLISECONDS
+            .toNanos(250);
 
     @FXML
-    private ListView<String> repositories;
+    private ListView<GitCloneRow> repositories;
 
     @FXML
     private Label title;
@@ -49,9 +74,100 @@ public class GitCloneController implements SetupController {
     @FXML
     private TextField directory;
 
+    @FXML
+    private Button cancel;
+
     private GitCloneTask task;
 
-    private ObservableList<String> repoList;
+    private ObservableList<GitCloneRow> repoList;
+
+    /** State per repository URL. */
+    private final Map<String, GitCloneRow> rows = new ConcurrentHashMap<>();
+
+    /** Rows of manifest repositories that are not displayed yet. */
+    private final Queue<GitCloneRow> added = new ConcurrentLinkedQueue<>();
+
+    /** Some row changed since the last refresh. */
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    /** Number of repositories in progress (Their elapsed time changes). */
+    private final AtomicInteger running = new AtomicInteger();
+
+    /** The updater is running or about to be started. */
+    private final AtomicBoolean updating = new AtomicBoolean();
+
+    /** The page was removed from the scene (Only used on the UI thread). */
+    private boolean detached;
+
+    private final AnimationTimer updater = new AnimationTimer() {
+
+        private long last;
+
+        @Override
+        public void handle(final long now) {
+            if (now - last >= REFRESH_NANOS) {
+                last = now;
+                applyUpdates();
+                if (isIdle()) {
+                    stopUpdates();
+                    // A change may have come in while stopping
+                    if (!isIdle()) {
+                        scheduleUpdate();
+                    }
+                }
+            }
+        }
+
+    };
+
+    private final GitCloneListener listener = new GitCloneListener() {
+
+        @Override
+        public void started(final GitRepository repository) {
+            getRow(repository).started(System.currentTimeMillis());
+            running.incrementAndGet();
+            scheduleUpdate();
+            Platform.runLater(() -> cancel.setDisable(task.isCancelled()));
+        }
+
+        @Override
+        public void progress(final GitCloneProgress progress) {
+            getRow(progress.getRepository()).progress(progress);
+            scheduleUpdate();
+        }
+
+        @Override
+        public void finished(final GitCloneResult result) {
+            final GitCloneRow row = getRow(result.getRepository());
+            if (row.getState() == GitCloneRow.State.CLONING) {
+                running.decrementAndGet();
+            }
+            row.finished(result);
+            scheduleUpdate();
+        }
+
+    };
+
+    @Override
+    public void initialize(final URL location, final ResourceBundle resources) {
+        repositories.sceneProperty().addListener((observable, oldScene,
+                newScene) -> {
+            if (newScene == null) {
+                // Page was left
+                detached = true;
+                stopUpdates();
+                if (task != null) {
+                    task.removeListener(listener);
+                }
+            } else if (detached) {
+                // Page is shown again - Missed events are read from the task
+                detached = false;
+                if (task != null) {
+                    init(task);
+                }
+            }
+        });
+    }
 
     @Override
     public void init(final SetupTask setupTask) {
@@ -60,8 +176,18 @@ public class GitCloneController implements SetupController {
                     "Expected task of type " + GitCloneTask.class.getName()
                             + ", but was: " + setupTask.getClass().getName());
         }
+        if (task != null) {
+            task.removeListener(listener);
+        }
         task = (GitCloneTask) setupTask;
+        rows.clear();
+        added.clear();
+        running.set(0);
+        repoList = null;
+        task.addListener(listener);
+        repositories.setCellFactory(view -> new RepositoryCell());
         refreshStatus();
+        scheduleUpdate();
     }
 
     @Override
@@ -73,13 +199,99 @@ public class GitCloneController implements SetupController {
     public void save() {
         // Nothing to to
     }
-    
+
     private void displayData(final boolean alreadyExecuted) {
-        repoList = FXCollections.observableArrayList(task.getRepositories());
-        repositories.setItems(repoList);
+        if (repoList == null) {
+            // Created only once - Later changes come in through the listener
+            final List<GitCloneRow> list = new ArrayList<>();
+            for (final GitRepository repository : task.getRepositories()) {
+                final GitCloneRow row = new GitCloneRow(repository);
+                rows.put(repository.getUrl(), row);
+                list.add(row);
+            }
+            for (final GitCloneResult result : task.getResults()) {
+                getRow(result.getRepository()).finished(result);
+            }
+            repoList = FXCollections.observableArrayList(list);
+            repositories.setItems(repoList);
+        }
         directory.setText(task.getTargetDir());
+        scheduleUpdate();
     }
-    
+
+    /**
+     * Returns the row of a repository. Repositories from a manifest are not
+     * known in advance, so a row is created and queued for display when they
+     * show up the first time.
+     * 
+     * @param repository
+     *            Repository to return the row for.
+     * 
+     * @return Row.
+     */
+    private GitCloneRow getRow(final GitRepository repository) {
+        return rows.computeIfAbsent(repository.getUrl(), url -> {
+            final GitCloneRow row = new GitCloneRow(repository);
+            added.add(row);
+            return row;
+        });
+    }
+
+    /**
+     * Marks the list as changed and starts the updater unless it is already
+     * running. May be called from any thread.
+     */
+    private void scheduleUpdate() {
+        dirty.set(true);
+        if (updating.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                if (detached) {
+                    updating.set(false);
+                } else {
+                    updater.start();
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops the updater. Must be called on the UI thread.
+     */
+    private void stopUpdates() {
+        updater.stop();
+        updating.set(false);
+    }
+
+    /**
+     * Determines if the list does not have to be refreshed anymore.
+     * 
+     * @return TRUE if nothing changed and no clone is in progress.
+     */
+    private boolean isIdle() {
+        return !dirty.get() && added.isEmpty() && running.get() == 0;
+    }
+
+    /**
+     * Adds the new rows and refreshes the visible cells in one batch. Must be
+     * called on the UI thread.
+     */
+    private void applyUpdates() {
+        if (repoList == null) {
+            return;
+        }
+        if (!added.isEmpty()) {
+            final List<GitCloneRow> list = new ArrayList<>();
+            GitCloneRow row;
+            while ((row = added.poll()) != null) {
+                list.add(row);
+            }
+            repoList.addAll(list);
+        }
+        if (dirty.getAndSet(false) || running.get() > 0) {
+            repositories.refresh();
+        }
+    }
+
     @Override
     public SetupTask getTask() {
         return task;
@@ -91,6 +303,7 @@ public class GitCloneController implements SetupController {
         displayData(alreadyExecuted);
         repositories.setDisable(alreadyExecuted);
         directory.setDisable(alreadyExecuted);
+        cancel.setDisable(alreadyExecuted);
         if (alreadyExecuted) {
             title.setGraphic(createIconOk24x24());
         } else {
@@ -98,4 +311,50 @@ public class GitCloneController implements SetupController {
         }
     }
 
+    /**
+     * Cancels the running clones. Finished clones are kept.
+     */
+    @FXML
+    public void cancelTask() {
+        task.cancel();
+        cancel.setDisable(true);
+    }
+
+    /**
+     * Displays a repository with its state, elapsed time and transfer rate.
+     * The list view only creates cells for the visible rows and reuses them
+     * while scrolling, so the number of repositories does not matter.
+     */
+    private static final class RepositoryCell extends ListCell<GitCloneRow> {
+
+        private final Label label = new Label();
+
+        private final ProgressBar progressBar = new ProgressBar(0);
+
+        private final Label status = new Label();
+
+        private final VBox box = new VBox(2, label, progressBar, status);
+
+        RepositoryCell() {
+            super();
+            progressBar.setMaxWidth(Double.MAX_VALUE);
+        }
+
+        @Override
+        protected void updateItem(final GitCloneRow row, final boolean empty) {
+            super.updateItem(row, empty);
+            setText(null);
+            if (empty || row == null) {
+                setGraphic(null);
+                return;
+            }
+            final long now = System.currentTimeMillis();
+            label.setText(row.getRepository().getUrl());
+            progressBar.setProgress(row.getFraction());
+            status.setText(row.getStatusText(now));
+            setGraphic(box);
+        }
+
+    }
+
 }
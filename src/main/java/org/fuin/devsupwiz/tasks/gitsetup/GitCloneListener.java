@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Receives notifications about the repositories processed by a
+ * {@link GitCloneTask}. Methods are called from the worker threads, so
+ * implementations must be thread-safe and should return quickly.
+ */
+public interface GitCloneListener {
+
+    /**
+     * A worker started to clone or fetch a repository.
+     * 
+     * @param repository
+     *            Repository.
+     */
+    public void started(@NotNull GitRepository repository);
+
+    /**
+     * Git reported progress for a repository.
+     * 
+     * @param progress
+     *            Current progress.
+     */
+    public void progress(@NotNull GitCloneProgress progress);
+
+    /**
+     * A repository was processed (successfully or not).
+     * 
+     * @param result
+     *            Outcome.
+     */
+    public void finished(@NotNull GitCloneResult result);
+
+}
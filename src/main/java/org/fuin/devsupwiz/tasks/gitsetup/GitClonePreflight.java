@@ -0,0 +1,248 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import javax.validation.constraints.NotNull;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Checks before cloning if the target file system has enough space for the
+ * repositories and optionally measures how fast it can be written. The size
+ * of a repository is taken from its size hint or the size recorded in a
+ * previous run. Repositories without any information are assumed to have the
+ * average size of the known ones.
+ */
+public final class GitClonePreflight {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(GitClonePreflight.class);
+
+    /** A checkout needs about the same space as the ".git" directory. */
+    private static final int CHECKOUT_FACTOR = 2;
+
+    /** Additional space in percent that has to be left free. */
+    private static final int SAFETY_MARGIN_PERCENT = 10;
+
+    /** Number of bytes written to measure the throughput. */
+    private static final int PROBE_BYTES = 16 * 1024 * 1024;
+
+    /** Size of a single write while measuring the throughput. */
+    private static final int PROBE_CHUNK = 1024 * 1024;
+
+    /** Write throughput a single clone is expected to use. */
+    static final long BYTES_PER_SECOND_PER_CLONE = 25L * 1024L * 1024L;
+
+    private final File dir;
+
+    private final GitCloneStats stats;
+
+    private int count;
+
+    private int unknown;
+
+    private long knownBytes;
+
+    private long usableBytes;
+
+    private long bytesPerSecond;
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param dir
+     *            Existing target directory.
+     * @param stats
+     *            Sizes recorded in previous runs.
+     */
+    public GitClonePreflight(@NotNull final File dir,
+            @NotNull final GitCloneStats stats) {
+        super();
+        this.dir = dir;
+        this.stats = stats;
+    }
+
+    /**
+     * Adds a repository that will be cloned.
+     * 
+     * @param repository
+     *            Repository to add.
+     */
+    public final void add(@NotNull final GitRepository repository) {
+        count++;
+        Long size = repository.getSizeHintBytes();
+        if (size == null) {
+            size = stats.getBytes(repository.getUrl());
+        }
+        if (size == null) {
+            unknown++;
+        } else {
+            knownBytes = knownBytes + size;
+        }
+    }
+
+    /**
+     * Returns the estimated space needed for all added repositories
+     * including the checkout and a safety margin.
+     * 
+     * @return Number of bytes.
+     */
+    public final long getRequiredBytes() {
+        final int known = count - unknown;
+        final long average = known == 0 ? 0 : knownBytes / known;
+        final long bytes = (knownBytes + unknown * average) * CHECKOUT_FACTOR;
+        return bytes + bytes / 100 * SAFETY_MARGIN_PERCENT;
+    }
+
+    /**
+     * Returns the free space on the target file system measured by
+     * {@link #run()}.
+     * 
+     * @return Number of bytes.
+     */
+    public final long getUsableBytes() {
+        return usableBytes;
+    }
+
+    /**
+     * Returns the write throughput of the target file system measured by
+     * {@link #measureThroughput()}.
+     * 
+     * @return Bytes per second or <code>0</code> if it was not or could not
+     *         be measured.
+     */
+    public final long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Returns the number of clones the target file system is able to write
+     * at the same time. Without a measured throughput this is always the
+     * upper limit.
+     * 
+     * @param max
+     *            Upper limit.
+     * 
+     * @return Number of parallel clones between 1 and the upper limit.
+     */
+    public final int suggestParallelism(final int max) {
+        if (bytesPerSecond <= 0) {
+            return max;
+        }
+        final long clones = bytesPerSecond / BYTES_PER_SECOND_PER_CLONE;
+        return (int) Math.max(1, Math.min(max, clones));
+    }
+
+    /**
+     * Determines the free space and verifies that the repositories fit on the
+     * file system.
+     * 
+     * @throws RuntimeException
+     *             There is not enough free space.
+     */
+    public final void run() {
+        try {
+            usableBytes = Files.getFileStore(dir.toPath()).getUsableSpace();
+        } catch (final IOException ex) {
+            throw new RuntimeException(
+                    "Failed to determine free space of " + dir, ex);
+        }
+        LOG.info("Preflight: {}", this);
+        if (getRequiredBytes() > usableBytes) {
+            throw new RuntimeException("Not enough disk space: " + this);
+        }
+    }
+
+    /**
+     * Measures the write throughput of the target file system by writing a
+     * file of 16 MB and forcing it to the disk.
+     * 
+     * @return Bytes per second or <code>0</code> if writing failed.
+     */
+    public final long measureThroughput() {
+        bytesPerSecond = writeProbe();
+        if (bytesPerSecond > 0) {
+            LOG.info("Preflight: {} writes {}/s", dir,
+                    FileUtils.byteCountToDisplaySize(bytesPerSecond));
+        }
+        return bytesPerSecond;
+    }
+
+    private long writeProbe() {
+        final File file;
+        try {
+            file = File.createTempFile(".devsupwiz-preflight", ".tmp", dir);
+        } catch (final IOException ex) {
+            LOG.warn("Cannot create test file in {}: {}", dir, ex.getMessage());
+            return 0;
+        }
+        try (final FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.WRITE)) {
+            // Random data, so compressing file systems don't cheat
+            final byte[] data = new byte[PROBE_CHUNK];
+            new Random().nextBytes(data);
+            final ByteBuffer buf = ByteBuffer.wrap(data);
+            final long start = System.nanoTime();
+            for (int i = 0; i < PROBE_BYTES / PROBE_CHUNK; i++) {
+                buf.clear();
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+            }
+            channel.force(true);
+            final long nanos = Math.max(1, System.nanoTime() - start);
+            return PROBE_BYTES * 1000000000L / nanos;
+        } catch (final IOException ex) {
+            LOG.warn("Failed to measure write throughput of {}: {}", dir,
+                    ex.getMessage());
+            return 0;
+        } finally {
+            FileUtils.deleteQuietly(file);
+        }
+    }
+
+    @Override
+    public final String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(count).append(" repositories in ").append(dir);
+        sb.append(" need about ")
+                .append(FileUtils.byteCountToDisplaySize(getRequiredBytes()));
+        if (unknown > 0) {
+            sb.append(" (").append(unknown).append(" without known size)");
+        }
+        sb.append(", usable ")
+                .append(FileUtils.byteCountToDisplaySize(usableBytes));
+        if (bytesPerSecond > 0) {
+            sb.append(", write ")
+                    .append(FileUtils.byteCountToDisplaySize(bytesPerSecond))
+                    .append("/s");
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Progress of a single repository as reported by git. Every phase (like
+ * "Receiving objects" or "Resolving deltas") counts from 0 to 100 percent.
+ */
+public final class GitCloneProgress {
+
+    private final GitRepository repository;
+
+    private final String phase;
+
+    private final int percent;
+
+    private final long current;
+
+    private final long total;
+
+    private final long bytes;
+
+    private final long bytesPerSecond;
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param repository
+     *            Repository the progress is for.
+     * @param phase
+     *            Name of the phase like "Receiving objects".
+     * @param percent
+     *            Completion of the phase (0-100).
+     * @param current
+     *            Number of objects processed so far.
+     * @param total
+     *            Total number of objects of the phase.
+     * @param bytes
+     *            Number of bytes received so far or 0 if unknown.
+     * @param bytesPerSecond
+     *            Transfer rate or 0 if unknown.
+     */
+    public GitCloneProgress(@NotNull final GitRepository repository,
+            @NotEmpty final String phase, final int percent,
+            final long current, final long total, final long bytes,
+            final long bytesPerSecond) {
+        super();
+        this.repository = repository;
+        this.phase = phase;
+        this.percent = percent;
+        this.current = current;
+        this.total = total;
+        this.bytes = bytes;
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Returns the repository.
+     * 
+     * @return Repository the progress is for.
+     */
+    public final GitRepository getRepository() {
+        return repository;
+    }
+
+    /**
+     * Returns the phase.
+     * 
+     * @return Name of the phase like "Receiving objects".
+     */
+    public final String getPhase() {
+        return phase;
+    }
+
+    /**
+     * Returns the completion of the phase.
+     * 
+     * @return Percent (0-100).
+     */
+    public final int getPercent() {
+        return percent;
+    }
+
+    /**
+     * Returns the number of objects processed so far.
+     * 
+     * @return Current object count.
+     */
+    public final long getCurrent() {
+        return current;
+    }
+
+    /**
+     * Returns the number of objects of the phase.
+     * 
+     * @return Total object count.
+     */
+    public final long getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the number of bytes received so far.
+     * 
+     * @return Bytes or 0 if unknown.
+     */
+    public final long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the transfer rate.
+     * 
+     * @return Bytes per second or 0 if unknown.
+     */
+    public final long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    @Override
+    public final String toString() {
+        final StringBuilder sb = new StringBuilder(phase).append(' ')
+                .append(percent).append("% (").append(current).append('/')
+                .append(total).append(')');
+        if (bytes > 0) {
+            sb.append(", ").append(FileUtils.byteCountToDisplaySize(bytes));
+        }
+        if (bytesPerSecond > 0) {
+            sb.append(" | ")
+                    .append(FileUtils.byteCountToDisplaySize(bytesPerSecond))
+                    .append("/s");
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import javax.validation.constraints.NotNull;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Outcome of cloning or fetching a single repository.
+ */
+public final class GitCloneResult {
+
+    private final GitRepository repository;
+
+    private final boolean success;
+
+    private final int attempts;
+
+    private final long durationMillis;
+
+    private final long bytes;
+
+    private final String message;
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param repository
+     *            Repository the result is for.
+     * @param success
+     *            TRUE if the repository is available in the target directory.
+     * @param attempts
+     *            Number of attempts (1 if no retry was necessary).
+     * @param durationMillis
+     *            Time spent on all attempts in milliseconds.
+     * @param bytes
+     *            Size of the local repository in bytes (0 if it failed).
+     * @param message
+     *            Reason of the last failure or <code>null</code>.
+     */
+    public GitCloneResult(@NotNull final GitRepository repository,
+            final boolean success, final int attempts,
+            final long durationMillis, final long bytes,
+            final String message) {
+        super();
+        this.repository = repository;
+        this.success = success;
+        this.attempts = attempts;
+        this.durationMillis = durationMillis;
+        this.bytes = bytes;
+        this.message = message;
+    }
+
+    /**
+     * Returns the repository.
+     * 
+     * @return Repository the result is for.
+     */
+    public final GitRepository getRepository() {
+        return repository;
+    }
+
+    /**
+     * Returns if the repository was successfully cloned or fetched.
+     * 
+     * @return TRUE if the repository is available in the target directory.
+     */
+    public final boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * Returns the number of attempts.
+     * 
+     * @return Number of attempts (1 if no retry was necessary).
+     */
+    public final int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Returns the number of retries.
+     * 
+     * @return Number of attempts that failed before the last one.
+     */
+    public final int getRetries() {
+        return attempts - 1;
+    }
+
+    /**
+     * Returns the duration.
+     * 
+     * @return Time spent on all attempts in milliseconds.
+     */
+    public final long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Returns the size of the local repository.
+     * 
+     * @return Size of the ".git" directory in bytes (0 if it failed).
+     */
+    public final long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the failure reason.
+     * 
+     * @return Reason of the last failure or <code>null</code>.
+     */
+    public final String getMessage() {
+        return message;
+    }
+
+    @Override
+    public final String toString() {
+        final StringBuilder sb = new StringBuilder(repository.getUrl());
+        if (success) {
+            sb.append(" - OK");
+        } else {
+            sb.append(" - FAILED");
+        }
+        sb.append(" (").append(attempts)
+                .append(attempts == 1 ? " attempt, " : " attempts, ")
+                .append(String.format("%.1f s", durationMillis / 1000.0));
+        if (bytes > 0) {
+            sb.append(", ").append(FileUtils.byteCountToDisplaySize(bytes));
+        }
+        sb.append(')');
+        if (message != null) {
+            sb.append(": ").append(message);
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,219 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import javax.validation.constraints.NotNull;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Display state of a single repository on the clone screen. The clone
+ * threads update the row and the UI thread reads it when the list is
+ * refreshed, so every field is volatile and the row never holds more than
+ * the latest event.
+ */
+final class GitCloneRow {
+
+    /** Processing state of a repository. */
+    enum State {
+
+        /** Waiting for a free worker. */
+        QUEUED,
+
+        /** Clone or fetch is running. */
+        CLONING,
+
+        /** Processed successfully. */
+        DONE,
+
+        /** Processing failed or was cancelled. */
+        FAILED;
+
+    }
+
+    private final GitRepository repository;
+
+    private volatile State state;
+
+    private volatile long startMillis;
+
+    private volatile GitCloneProgress progress;
+
+    private volatile GitCloneResult result;
+
+    /**
+     * Constructor with repository.
+     * 
+     * @param repository
+     *            Repository the row displays.
+     */
+    GitCloneRow(@NotNull final GitRepository repository) {
+        super();
+        this.repository = repository;
+        this.state = State.QUEUED;
+    }
+
+    /**
+     * Returns the repository.
+     * 
+     * @return Repository the row displays.
+     */
+    GitRepository getRepository() {
+        return repository;
+    }
+
+    /**
+     * Returns the processing state.
+     * 
+     * @return Current state.
+     */
+    State getState() {
+        return state;
+    }
+
+    /**
+     * Marks the repository as being processed.
+     * 
+     * @param nowMillis
+     *            Current time in milliseconds.
+     */
+    void started(final long nowMillis) {
+        progress = null;
+        result = null;
+        startMillis = nowMillis;
+        state = State.CLONING;
+    }
+
+    /**
+     * Sets the latest progress.
+     * 
+     * @param progress
+     *            Progress reported by git.
+     */
+    void progress(@NotNull final GitCloneProgress progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Sets the final result.
+     * 
+     * @param result
+     *            Result of the repository.
+     */
+    void finished(@NotNull final GitCloneResult result) {
+        this.result = result;
+        this.progress = null;
+        this.state = result.isSuccess() ? State.DONE : State.FAILED;
+    }
+
+    /**
+     * Returns the time spent on the repository so far.
+     * 
+     * @param nowMillis
+     *            Current time in milliseconds.
+     * 
+     * @return Elapsed milliseconds or <code>0</code> if not started yet.
+     */
+    long getElapsedMillis(final long nowMillis) {
+        final GitCloneResult current = result;
+        if (current != null) {
+            return current.getDurationMillis();
+        }
+        if (state == State.CLONING) {
+            return Math.max(0, nowMillis - startMillis);
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the transfer rate. While running this is the rate git reports,
+     * once finished it is the average over the whole duration.
+     * 
+     * @return Bytes per second or <code>0</code> if unknown.
+     */
+    long getBytesPerSecond() {
+        final GitCloneResult current = result;
+        if (current != null) {
+            if (current.getDurationMillis() <= 0) {
+                return 0;
+            }
+            return current.getBytes() * 1000 / current.getDurationMillis();
+        }
+        final GitCloneProgress latest = progress;
+        if (latest == null) {
+            return 0;
+        }
+        return latest.getBytesPerSecond();
+    }
+
+    /**
+     * Returns the value for a progress bar.
+     * 
+     * @return Value between 0 and 1 or -1 if the repository is running, but
+     *         git did not report any progress yet.
+     */
+    double getFraction() {
+        final State current = state;
+        if (current == State.DONE) {
+            return 1.0;
+        }
+        if (current != State.CLONING) {
+            return 0.0;
+        }
+        final GitCloneProgress latest = progress;
+        if (latest == null) {
+            return -1.0;
+        }
+        return latest.getPercent() / 100.0;
+    }
+
+    /**
+     * Returns a one line status like "cloning 12.3 s, 2 MB/s - Receiving
+     * objects 42%".
+     * 
+     * @param nowMillis
+     *            Current time in milliseconds.
+     * 
+     * @return Human readable status.
+     */
+    String getStatusText(final long nowMillis) {
+        final State current = state;
+        final StringBuilder sb = new StringBuilder(
+                current.name().toLowerCase());
+        if (current == State.QUEUED) {
+            return sb.toString();
+        }
+        sb.append(' ').append(
+                String.format("%.1f s", getElapsedMillis(nowMillis) / 1000.0));
+        final long rate = getBytesPerSecond();
+        if (rate > 0) {
+            sb.append(", ").append(FileUtils.byteCountToDisplaySize(rate))
+                    .append("/s");
+        }
+        final GitCloneProgress latest = progress;
+        final GitCloneResult finished = result;
+        if (latest != null) {
+            sb.append(" - ").append(latest.getPhase()).append(' ')
+                    .append(latest.getPercent()).append('%');
+        } else if (finished != null && finished.getMessage() != null) {
+            sb.append(" - ").append(finished.getMessage());
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Determines the order in which repositories are handed to the clone workers.
+ * Repositories with a higher priority come first, so they are available as
+ * early as possible. Within the same priority the largest repositories are
+ * started first (Longest processing time first): As every worker takes the
+ * next repository when it becomes free, this keeps a single big repository
+ * from being started last and dominating the total time.
+ */
+public final class GitCloneScheduler {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(GitCloneScheduler.class);
+
+    private final GitCloneStats stats;
+
+    /**
+     * Constructor with statistics.
+     * 
+     * @param stats
+     *            Sizes recorded in previous runs or <code>null</code>.
+     */
+    public GitCloneScheduler(final GitCloneStats stats) {
+        super();
+        this.stats = stats;
+    }
+
+    /**
+     * Orders the repositories.
+     * 
+     * @param repositories
+     *            Repositories in configuration order.
+     * @param slots
+     *            Number of workers.
+     * 
+     * @return New list with the repositories in the order to start them.
+     */
+    public final List<GitRepository> schedule(
+            @NotNull final List<GitRepository> repositories,
+            @Min(1) final int slots) {
+
+        final Map<GitRepository, Long> sizes = estimateSizes(repositories);
+        final List<GitRepository> ordered = new ArrayList<>(repositories);
+        // List.sort() is stable: Configuration order is kept for equal values
+        ordered.sort(Comparator
+                .comparingInt((GitRepository repo) -> repo.getPriority())
+                .reversed().thenComparing(sizes::get, Comparator.reverseOrder()));
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Expected bytes per worker: {}",
+                    simulate(ordered, sizes, slots));
+        }
+        return ordered;
+    }
+
+    /**
+     * Returns the estimated size for every repository. Declared size hints
+     * win over recorded sizes. Repositories without any information are
+     * assumed to have the average size of the known ones.
+     * 
+     * @param repositories
+     *            Repositories to estimate.
+     * 
+     * @return Size in bytes per repository.
+     */
+    final Map<GitRepository, Long> estimateSizes(
+            final List<GitRepository> repositories) {
+        final Map<GitRepository, Long> sizes = new HashMap<>();
+        long sum = 0;
+        for (final GitRepository repository : repositories) {
+            final Long size = knownSize(repository);
+            if (size != null) {
+                sizes.put(repository, size);
+                sum = sum + size;
+            }
+        }
+        final long average = sizes.isEmpty() ? 0 : sum / sizes.size();
+        for (final GitRepository repository : repositories) {
+            sizes.putIfAbsent(repository, average);
+        }
+        return sizes;
+    }
+
+    private Long knownSize(final GitRepository repository) {
+        final Long hint = repository.getSizeHintBytes();
+        if (hint != null) {
+            return hint;
+        }
+        if (stats == null) {
+            return null;
+        }
+        return stats.getBytes(repository.getUrl());
+    }
+
+    /**
+     * Distributes the repositories in the given order to the worker that
+     * becomes free first.
+     * 
+     * @param ordered
+     *            Repositories in start order.
+     * @param sizes
+     *            Estimated sizes.
+     * @param slots
+     *            Number of workers.
+     * 
+     * @return Expected number of bytes per worker.
+     */
+    private static List<Long> simulate(final List<GitRepository> ordered,
+            final Map<GitRepository, Long> sizes, final int slots) {
+        final PriorityQueue<long[]> queue = new PriorityQueue<>(
+                Comparator.comparingLong((long[] slot) -> slot[0]));
+        for (int i = 0; i < slots; i++) {
+            queue.add(new long[] { 0 });
+        }
+        for (final GitRepository repository : ordered) {
+            final long[] slot = queue.poll();
+            slot[0] = slot[0] + sizes.get(repository);
+            queue.add(slot);
+        }
+        final List<Long> loads = new ArrayList<>();
+        for (final long[] slot : queue) {
+            loads.add(slot[0]);
+        }
+        loads.sort(Comparator.reverseOrder());
+        return loads;
+    }
+
+}
@@ -0,0 +1,417 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+
+import javax.validation.constraints.NotNull;
+
+import org.apache.commons.io.FileUtils;
+import org.fuin.devsupwiz.common.LogOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+
+/**
+ * Creates a new clone from the fastest source available. The sources are
+ * tried in this order: A seed repository on the same file system, the
+ * embedded engine, a bundle file, the mirror cache and finally the URL of
+ * the repository. A source that is missing or fails is skipped.
+ */
+final class GitCloneSources {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(GitCloneSources.class);
+
+    private final GitCloneTask task;
+
+    private final GitMirrorCache cache;
+
+    private final GitCloneStats stats;
+
+    private final CancellationToken token;
+
+    private final Consumer<GitCloneProgress> consumer;
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param task
+     *            Task with the target directory and the clone options.
+     * @param cache
+     *            Mirror cache or <code>null</code>.
+     * @param stats
+     *            Statistics to record the duration of a clone from the URL.
+     * @param token
+     *            Kills running commands when cancelled or <code>null</code>.
+     * @param consumer
+     *            Receives the progress of the clones.
+     */
+    GitCloneSources(@NotNull final GitCloneTask task,
+            final GitMirrorCache cache, @NotNull final GitCloneStats stats,
+            final CancellationToken token,
+            @NotNull final Consumer<GitCloneProgress> consumer) {
+        super();
+        this.task = task;
+        this.cache = cache;
+        this.stats = stats;
+        this.token = token;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Clones a repository into the target directory of the task.
+     * 
+     * @param repository
+     *            Repository to clone.
+     * @param timeout
+     *            Maximum number of seconds or <code>0</code> for no limit.
+     * 
+     * @return Exit code of the first command that failed or <code>0</code>.
+     */
+    int cloneRepository(@NotNull final GitRepository repository,
+            final int timeout) {
+        final File seed = findSeed(repository);
+        if (seed != null && seedFrom(seed, repository, timeout)) {
+            return updateFromOrigin(repository, timeout);
+        }
+        if (useEmbeddedEngine(repository)) {
+            final long start = System.currentTimeMillis();
+            new GitEmbeddedEngine(task.getStallTimeout(), token)
+                    .cloneRepository(repository,
+                            new File(task.getTargetDirFile(),
+                                    repository.getName()),
+                            timeout, consumer);
+            stats.recordMillis(repository.getUrl(),
+                    System.currentTimeMillis() - start);
+            return 0;
+        }
+        if (repository.getBundle() != null && seedFromBundle(
+                GitCloneTask.toFile(repository.getBundle()), repository,
+                timeout)) {
+            return updateFromOrigin(repository, timeout);
+        }
+        if (cache == null) {
+            return cloneFromUrl(repository, timeout);
+        }
+        final GitMirrorCache.Mirror mirror;
+        try {
+            mirror = cache.acquire(repository.getUrl(), token);
+        } catch (final CancellationException ex) {
+            throw ex;
+        } catch (final IOException | RuntimeException ex) {
+            // A broken or stuck mirror must not block the repository
+            LOG.warn("Cloning without mirror: " + ex.getMessage());
+            return cloneFromUrl(repository, timeout);
+        }
+        try {
+            return execute(createCloneCommand(repository, mirror.getDir()),
+                    task.getTargetDirFile(), repository, timeout);
+        } finally {
+            mirror.close();
+        }
+    }
+
+    /**
+     * Creates the clone command for a repository. Options defined on the
+     * repository override the ones defined on the task.
+     * 
+     * @param repository
+     *            Repository to clone.
+     * @param reference
+     *            Local mirror to borrow objects from or <code>null</code>.
+     * 
+     * @return Command and arguments.
+     */
+    List<String> createCloneCommand(@NotNull final GitRepository repository,
+            final File reference) {
+        final List<String> cmd = new ArrayList<>(
+                Arrays.asList("git", "clone", "-v", "--progress"));
+        final Integer dpt = choose(repository.getDepth(), task.getDepth());
+        if (dpt != null) {
+            cmd.add("--depth");
+            cmd.add(dpt.toString());
+        }
+        final String flt = choose(repository.getFilter(), task.getFilter());
+        if (flt != null) {
+            cmd.add("--filter=" + flt);
+        }
+        final Boolean single = choose(repository.getSingleBranch(),
+                task.getSingleBranch());
+        if (single != null) {
+            cmd.add(single ? "--single-branch" : "--no-single-branch");
+        }
+        if (!repository.getSparseDirs().isEmpty()) {
+            cmd.add("--sparse");
+        }
+        if (reference != null) {
+            cmd.add("--reference");
+            cmd.add(reference.toString());
+            cmd.add("--dissociate");
+        }
+        cmd.add("--");
+        cmd.add(repository.getUrl());
+        return cmd;
+    }
+
+    /**
+     * Executes a git command that reports its progress.
+     * 
+     * @param command
+     *            Command and arguments.
+     * @param dir
+     *            Directory to execute the command in.
+     * @param repository
+     *            Repository the progress belongs to.
+     * @param timeout
+     *            Maximum number of seconds or <code>0</code> for no limit.
+     * 
+     * @return Exit code of the command.
+     */
+    int execute(@NotNull final List<String> command, @NotNull final File dir,
+            @NotNull final GitRepository repository, final int timeout) {
+        return ProcessCommand.execute(command, dir, timeout,
+                task.getStallTimeout(), createProgressStream(repository),
+                token);
+    }
+
+    /**
+     * Clones a repository from its URL without borrowing objects from a local
+     * source. Only the duration of such a clone is recorded, because it is the
+     * base for the timeout of later runs.
+     * 
+     * @param repository
+     *            Repository to clone.
+     * @param timeout
+     *            Maximum number of seconds or <code>0</code> for no limit.
+     * 
+     * @return Exit code of the clone command.
+     */
+    private int cloneFromUrl(final GitRepository repository,
+            final int timeout) {
+        final long start = System.currentTimeMillis();
+        final int result = execute(createCloneCommand(repository, null),
+                task.getTargetDirFile(), repository, timeout);
+        if (result == 0) {
+            stats.recordMillis(repository.getUrl(),
+                    System.currentTimeMillis() - start);
+        }
+        return result;
+    }
+
+    /**
+     * Determines if a repository is cloned with the embedded engine. In case
+     * the engine does not support an option of the repository, the native
+     * engine is used instead.
+     * 
+     * @param repository
+     *            Repository to clone.
+     * 
+     * @return TRUE if the embedded engine is used.
+     */
+    private boolean useEmbeddedEngine(final GitRepository repository) {
+        if (!GitCloneTask.ENGINE_EMBEDDED.equals(task.getEngine())) {
+            return false;
+        }
+        final String option;
+        if (cache == null) {
+            option = GitEmbeddedEngine.unsupportedOption(repository,
+                    choose(repository.getDepth(), task.getDepth()),
+                    choose(repository.getFilter(), task.getFilter()),
+                    choose(repository.getSingleBranch(),
+                            task.getSingleBranch()));
+        } else {
+            option = "mirror-cache";
+        }
+        if (option == null) {
+            return true;
+        }
+        LOG.warn("Embedded engine does not support '{}' - Using native git",
+                option);
+        return false;
+    }
+
+    /**
+     * Clones a repository from a local bundle file. A missing or broken
+     * bundle is not an error, but the repository has to be cloned from its
+     * URL instead.
+     * 
+     * @param bundle
+     *            Bundle file.
+     * @param repository
+     *            Repository to clone.
+     * @param timeout
+     *            Maximum number of seconds or <code>0</code> for no limit.
+     * 
+     * @return TRUE if the clone was created from the bundle.
+     */
+    private boolean seedFromBundle(final File bundle,
+            final GitRepository repository, final int timeout) {
+        if (!bundle.isFile()) {
+            LOG.warn("Bundle {} not found - Cloning {}", bundle,
+                    repository.getUrl());
+            return false;
+        }
+        LOG.info("Cloning from bundle {}", bundle);
+        return seedFrom(bundle, repository, timeout);
+    }
+
+    /**
+     * Locates the seed for a repository. A seed is a working copy or bare
+     * repository with the same name inside the seed directory that is on the
+     * same file system as the target directory, so git can hardlink the
+     * objects instead of copying or downloading them.
+     * 
+     * @param repository
+     *            Repository to clone.
+     * 
+     * @return Seed repository or <code>null</code> if there is no usable
+     *         seed.
+     */
+    private File findSeed(final GitRepository repository) {
+        final File dir = task.getSeedDirFile();
+        if (dir == null) {
+            return null;
+        }
+        File seed = new File(dir, repository.getName());
+        if (!new File(seed, ".git").exists()) {
+            seed = new File(dir, repository.getName() + ".git");
+            if (!new File(seed, "HEAD").exists()) {
+                LOG.info("No seed for {} in {}", repository, dir);
+                return null;
+            }
+        }
+        final String seedUrl = ProcessCommand.query(
+                Arrays.asList("git", "config", "--get", "remote.origin.url"),
+                seed, GitCloneTask.QUERY_TIMEOUT_SECONDS);
+        if (seedUrl != null
+                && !GitCloneTask.sameUrl(repository.getUrl(), seedUrl)) {
+            LOG.warn("Seed {} is a clone of '{}' and not of '{}'", seed,
+                    seedUrl, repository.getUrl());
+            return null;
+        }
+        try {
+            if (!Files.getFileStore(seed.toPath()).equals(
+                    Files.getFileStore(task.getTargetDirFile().toPath()))) {
+                LOG.info("Seed {} is on another file system than {}", seed,
+                        task.getTargetDirFile());
+                return null;
+            }
+        } catch (final IOException ex) {
+            LOG.warn("Cannot determine file system of seed {}: {}", seed,
+                    ex.getMessage());
+            return null;
+        }
+        LOG.info("Cloning from seed {}", seed);
+        return seed;
+    }
+
+    /**
+     * Clones a repository from a local source. For a repository directory git
+     * hardlinks the objects where possible and copies them otherwise. In case
+     * the clone fails, the directory is removed again. A directory that
+     * already exists is never touched, so the local source is not used then.
+     * 
+     * @param source
+     *            Local repository or bundle file.
+     * @param repository
+     *            Repository to clone.
+     * @param timeout
+     *            Maximum number of seconds or <code>0</code> for no limit.
+     * 
+     * @return TRUE if the clone was created from the source.
+     */
+    private boolean seedFrom(final File source,
+            final GitRepository repository, final int timeout) {
+        final File dir = new File(task.getTargetDirFile(),
+                repository.getName());
+        if (dir.exists()) {
+            LOG.warn("Directory {} already exists - Not cloning from {}", dir,
+                    source);
+            return false;
+        }
+        final List<String> command = new ArrayList<>(
+                Arrays.asList("git", "clone", "-v", "--progress"));
+        if (!repository.getSparseDirs().isEmpty()) {
+            command.add("--sparse");
+        }
+        command.add("--");
+        command.add(source.toString());
+        command.add(repository.getName());
+        if (execute(command, task.getTargetDirFile(), repository,
+                timeout) == 0) {
+            return true;
+        }
+        LOG.warn("Failed to clone from {} - Cloning {}", source,
+                repository.getUrl());
+        FileUtils.deleteQuietly(dir);
+        return false;
+    }
+
+    /**
+     * Points a clone that was seeded from a local source to the real remote
+     * and fetches the commits that are missing.
+     * 
+     * @param repository
+     *            Repository that was cloned.
+     * @param timeout
+     *            Maximum number of seconds or <code>0</code> for no limit.
+     * 
+     * @return Exit code of the first command that failed or <code>0</code>.
+     */
+    private int updateFromOrigin(final GitRepository repository,
+            final int timeout) {
+        final File dir = new File(task.getTargetDirFile(),
+                repository.getName());
+        int result = ProcessCommand.execute(
+                Arrays.asList("git", "remote", "set-url", "origin",
+                        repository.getUrl()),
+                dir, GitCloneTask.QUERY_TIMEOUT_SECONDS, token);
+        if (result == 0) {
+            result = execute(GitCloneTask.FETCH_COMMAND, dir, repository,
+                    timeout);
+        }
+        if (result == 0) {
+            result = ProcessCommand.execute(
+                    Arrays.asList("git", "merge", "--ff-only", "@{upstream}"),
+                    dir, timeout, token);
+        }
+        return result;
+    }
+
+    private OutputStream createProgressStream(final GitRepository repository) {
+        return new GitProgressOutputStream(repository, consumer,
+                new LogOutputStream(Level.ERROR));
+    }
+
+    private static <T> T choose(final T value, final T defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sizes and durations of repositories recorded in previous runs. The values
+ * are stored in a properties file that is shared by all git clone tasks.
+ */
+public final class GitCloneStats {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(GitCloneStats.class);
+
+    private static final String BYTES = ".bytes";
+
+    private static final String MILLIS = ".millis";
+
+    private final File file;
+
+    private final Properties props;
+
+    /**
+     * Constructor with file. Loads the file if it exists.
+     * 
+     * @param file
+     *            Properties file with the statistics.
+     */
+    public GitCloneStats(@NotNull final File file) {
+        super();
+        this.file = file;
+        this.props = new Properties();
+        load(file, props);
+    }
+
+    /**
+     * Returns the file the statistics are stored in.
+     * 
+     * @return Properties file.
+     */
+    public final File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the size recorded for a repository.
+     * 
+     * @param url
+     *            Repository URL.
+     * 
+     * @return Size in bytes or <code>null</code> if unknown.
+     */
+    public final synchronized Long getBytes(@NotEmpty final String url) {
+        return getLong(url + BYTES);
+    }
+
+    /**
+     * Returns the duration recorded for a repository.
+     * 
+     * @param url
+     *            Repository URL.
+     * 
+     * @return Duration in milliseconds or <code>null</code> if unknown.
+     */
+    public final synchronized Long getMillis(@NotEmpty final String url) {
+        return getLong(url + MILLIS);
+    }
+
+    /**
+     * Records the size of a repository.
+     * 
+     * @param url
+     *            Repository URL.
+     * @param bytes
+     *            Size in bytes.
+     */
+    public final synchronized void recordBytes(@NotEmpty final String url,
+            final long bytes) {
+        props.setProperty(url + BYTES, String.valueOf(bytes));
+    }
+
+    /**
+     * Records the duration of a clone from the repository URL. Clones from
+     * local sources and fetches are much faster and must not be recorded.
+     * 
+     * @param url
+     *            Repository URL.
+     * @param millis
+     *            Duration in milliseconds.
+     */
+    public final synchronized void recordMillis(@NotEmpty final String url,
+            final long millis) {
+        props.setProperty(url + MILLIS, String.valueOf(millis));
+    }
+
+    /**
+     * Saves the statistics. Values stored by other processes in the meantime
+     * are kept unless they were recorded for the same repository.
+     */
+    public final synchronized void save() {
+        try {
+            final Properties merged = new Properties();
+            load(file, merged);
+            merged.putAll(props);
+            FileUtils.forceMkdir(file.getAbsoluteFile().getParentFile());
+            final File tmpFile = File.createTempFile(file.getName(), ".tmp",
+                    file.getAbsoluteFile().getParentFile());
+            try (final OutputStream out = new FileOutputStream(tmpFile)) {
+                merged.store(out, "Recorded by git-clone tasks");
+            }
+            Files.move(tmpFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException ex) {
+            LOG.warn("Failed to save clone statistics: " + file, ex);
+        }
+    }
+
+    private Long getLong(final String key) {
+        final String value = props.getProperty(key);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value);
+        } catch (final NumberFormatException ex) {
+            LOG.warn("Ignored invalid value for '{}' in {}: {}", key, file,
+                    value);
+            return null;
+        }
+    }
+
+    private static void load(final File file, final Properties props) {
+        if (!file.exists()) {
+            return;
+        }
+        try (final InputStream in = new FileInputStream(file)) {
+            props.load(in);
+        } catch (final IOException ex) {
+            LOG.warn("Failed to load clone statistics: " + file, ex);
+        }
+    }
+
+}
@@ -20,32 +20,45 @@ package org.fuin.devsupwiz.tasks.gitsetup;
 import static org.fuin.devsupwiz.common.DevSupWizUtils.MDC_TASK_KEY;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 import javax.enterprise.inject.Vetoed;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.SystemUtils;
 import org.fuin.devsupwiz.common.AbstractSetupTask;
-import org.fuin.devsupwiz.common.LogOutputStream;
 import org.fuin.devsupwiz.common.MultipleInstancesSetupTask;
-import org.fuin.devsupwiz.common.ShellCommandExecutor;
 import org.fuin.utils4j.Utils4J;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
-import org.slf4j.event.Level;
 
 /**
  * Clones one or more git repositories. Requires that a valid SSH key is
- * installed.
+ * installed. The repositories are cloned concurrently using a bounded number
+ * of worker threads. In sync mode repositories that were already cloned are
+ * fetched instead.
  */
 @Vetoed
 @XmlAccessorType(XmlAccessType.FIELD)
@@ -56,6 +69,66 @@ public final class GitCloneTask extends AbstractSetupTask
     /** Unique normalized name of the task (for example used for FXML file). */
     static final String KEY = "git-clone";
 
+    /** Allowed characters for a partial clone filter specification. */
+    static final String FILTER_PATTERN = "[A-Za-z0-9:=+._\\-]+";
+
+    /** Engine that starts a "git" process for every command. */
+    static final String ENGINE_NATIVE = "native";
+
+    /** Engine that runs git inside the JVM. */
+    static final String ENGINE_EMBEDDED = "embedded";
+
+    /** Allowed values for the engine. */
+    static final String ENGINE_PATTERN = ENGINE_NATIVE + "|" + ENGINE_EMBEDDED;
+
+    /** Default number of attempts per repository. */
+    static final int DEFAULT_ATTEMPTS = 3;
+
+    /** Default delay in seconds before the first retry. */
+    static final int DEFAULT_RETRY_DELAY = 2;
+
+    /** Maximum delay in seconds between two attempts. */
+    private static final int MAX_RETRY_DELAY = 60;
+
+    /** Default file for sizes and durations recorded in previous runs. */
+    static final String DEFAULT_STATS_FILE = "~/.cache/devsupwiz/git-clone-stats.properties";
+
+    /** Default maximum size of the mirror cache in megabytes. */
+    static final int DEFAULT_MIRROR_CACHE_LIMIT = 10240;
+
+    /** Default number of seconds without progress before a clone is aborted. */
+    static final int DEFAULT_STALL_TIMEOUT = 60;
+
+    /** Default number of Maven projects resolved in parallel. */
+    static final int DEFAULT_WARM_UP_PARALLELISM = 2;
+
+    /** Default Maven command. */
+    static final String DEFAULT_MAVEN_EXECUTABLE = "mvn";
+
+    /** Lower limit in seconds for a timeout learned from previous runs. */
+    private static final int MIN_LEARNED_TIMEOUT = 300;
+
+    /** Multiple of the previous duration a clone may take before it's aborted. */
+    private static final int LEARNED_TIMEOUT_FACTOR = 4;
+
+    /** Fetches the commits of an existing clone. */
+    static final List<String> FETCH_COMMAND = Collections
+            .unmodifiableList(Arrays.asList("git", "fetch", "-v", "--progress",
+                    "--prune", "origin"));
+
+    /** Maximum number of seconds to wait for a short local git command. */
+    static final int QUERY_TIMEOUT_SECONDS = 10;
+
+    /** Commands that make daily operations on a fresh clone faster. */
+    private static final String[][] OPTIMIZE_COMMANDS = new String[][] {
+            { "git", "commit-graph", "write", "--reachable",
+                    "--changed-paths" },
+            { "git", "multi-pack-index", "write" },
+            { "git", "config", "core.untrackedCache", "true" } };
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(GitCloneTask.class);
+
     @NotEmpty
     @XmlAttribute(name = "id")
     private String id;
@@ -64,8 +137,95 @@ public final class GitCloneTask extends AbstractSetupTask
     @XmlAttribute(name = "target-dir")
     private String targetDir;
 
+    @Min(1)
+    @XmlAttribute(name = "parallelism")
+    private Integer parallelism;
+
+    @Min(1)
+    @XmlAttribute(name = "depth")
+    private Integer depth;
+
+    @Pattern(regexp = FILTER_PATTERN)
+    @XmlAttribute(name = "filter")
+    private String filter;
+
+    @XmlAttribute(name = "single-branch")
+    private Boolean singleBranch;
+
+    @XmlAttribute(name = "mirror-cache")
+    private String mirrorCache;
+
+    @XmlAttribute(name = "seed-dir")
+    private String seedDir;
+
+    @Min(1)
+    @XmlAttribute(name = "mirror-cache-limit")
+    private Integer mirrorCacheLimit;
+
+    @XmlAttribute(name = "sync")
+    private Boolean sync;
+
+    @XmlAttribute(name = "optimize")
+    private Boolean optimize;
+
+    @XmlAttribute(name = "preflight")
+    private Boolean preflight;
+
+    @XmlAttribute(name = "measure-throughput")
+    private Boolean measureThroughput;
+
+    @XmlAttribute(name = "warm-up")
+    private Boolean warmUp;
+
+    @Min(1)
+    @XmlAttribute(name = "warm-up-parallelism")
+    private Integer warmUpParallelism;
+
+    @XmlAttribute(name = "maven-executable")
+    private String mavenExecutable;
+
+    @XmlAttribute(name = "maven-settings")
+    private String mavenSettings;
+
+    @XmlAttribute(name = "maven-local-repo")
+    private String mavenLocalRepo;
+
+    @Min(1)
+    @XmlAttribute(name = "attempts")
+    private Integer attempts;
+
+    @Min(0)
+    @XmlAttribute(name = "retry-delay")
+    private Integer retryDelay;
+
+    @XmlAttribute(name = "stats-file")
+    private String statsFile;
+
+    @Min(0)
+    @XmlAttribute(name = "stall-timeout")
+    private Integer stallTimeout;
+
+    @Pattern(regexp = ENGINE_PATTERN)
+    @XmlAttribute(name = "engine")
+    private String engine;
+
+    @XmlAttribute(name = "manifest")
+    private String manifest;
+
+    @XmlAttribute(name = "include")
+    private String include;
+
+    @XmlAttribute(name = "exclude")
+    private String exclude;
+
     @XmlElement(name = "repository")
-    private List<String> repositories;
+    private List<GitRepository> repositories;
+
+    private transient Map<String, GitCloneResult> results;
+
+    private transient List<GitCloneListener> listeners;
+
+    private transient volatile CancellationToken cancellation;
 
     /**
      * Default constructor for JAXB.
@@ -86,13 +246,44 @@ public final class GitCloneTask extends AbstractSetupTask
      */
     public GitCloneTask(@NotEmpty final String id,
             @NotEmpty final String targetDir,
-            @NotNull final List<String> repositories) {
+            @NotNull final List<GitRepository> repositories) {
         super();
         this.id = id;
         this.targetDir = targetDir;
         this.repositories = new ArrayList<>(repositories);
     }
 
+    /**
+     * Returns the results of the last execution.
+     * 
+     * @return Immutable list with one result for every processed repository.
+     *         Results of the repository list come first and in the same
+     *         order, followed by the results of the manifest in the order
+     *         they finished.
+     */
+    public final List<GitCloneResult> getResults() {
+        final List<GitCloneResult> list = new ArrayList<>();
+        final Map<String, GitCloneResult> map = results;
+        if (map != null) {
+            final Set<String> urls = new HashSet<>();
+            for (final GitRepository repository : getRepositories()) {
+                final GitCloneResult result = map.get(repository.getUrl());
+                if (result != null) {
+                    list.add(result);
+                }
+                urls.add(repository.getUrl());
+            }
+            synchronized (map) {
+                for (final GitCloneResult result : map.values()) {
+                    if (!urls.contains(result.getRepository().getUrl())) {
+                        list.add(result);
+                    }
+                }
+            }
+        }
+        return Collections.unmodifiableList(list);
+    }
+
     /**
      * Returns git base directory.
      * 
@@ -111,9 +302,7 @@ public final class GitCloneTask extends AbstractSetupTask
         if (targetDir == null) {
             return new File(Utils4J.getUserHomeDir(), "git");
         }
-        final String dir = StringUtils.replace(targetDir, "~",
-                Utils4J.getUserHomeDir().toString());
-        return new File(dir);
+        return toFile(targetDir);
     }
 
     /**
@@ -131,43 +320,1300 @@ public final class GitCloneTask extends AbstractSetupTask
      * 
      * @return Immutable list.
      */
-    public List<String> getRepositories() {
+    public List<GitRepository> getRepositories() {
         if (repositories == null) {
             return Collections.emptyList();
         }
         return Collections.unmodifiableList(repositories);
     }
 
-    @Override
-    public final void execute() {
+    /**
+     * Returns the external file with additional repositories.
+     * 
+     * @return Manifest file name or <code>null</code> if not defined.
+     */
+    public final String getManifest() {
+        return manifest;
+    }
 
-        MDC.put(MDC_TASK_KEY, getTypeId());
-        try {
+    /**
+     * Returns the external file with additional repositories as file.
+     * 
+     * @return Manifest file or <code>null</code> if not defined.
+     */
+    public final File getManifestFile() {
+        if (manifest == null) {
+            return null;
+        }
+        return toFile(manifest);
+    }
 
-            if (!getTargetDirFile().exists()) {
-                getTargetDirFile().mkdirs();
-            }
+    /**
+     * Sets the external file with additional repositories. The file is
+     * either a plain list with one URL per line or (If the name ends with
+     * ".xml") contains "repository" elements.
+     * 
+     * @param manifest
+     *            Manifest file name or <code>null</code>.
+     */
+    public final void setManifest(final String manifest) {
+        this.manifest = manifest;
+    }
 
-            for (final String repository : repositories) {
+    /**
+     * Returns the patterns of the repositories to clone.
+     * 
+     * @return Comma separated globs or "regex:" patterns or
+     *         <code>null</code> to clone all repositories.
+     */
+    public final String getInclude() {
+        return include;
+    }
 
-                final ShellCommandExecutor executor = new ShellCommandExecutor(
-                        "git clone -v " + repository, 120,
-                        new HashMap<String, String>(),
-                        new LogOutputStream(Level.INFO),
-                        new LogOutputStream(Level.ERROR), getTargetDirFile());
+    /**
+     * Sets the patterns of the repositories to clone.
+     * 
+     * @param include
+     *            Comma separated globs or "regex:" patterns or
+     *            <code>null</code> to clone all repositories.
+     */
+    public final void setInclude(final String include) {
+        this.include = include;
+    }
 
-                final int result = executor.execute();
-                if (result != 0) {
-                    throw new RuntimeException(
-                            "Failed to clone " + repository + ": " + result);
-                }
+    /**
+     * Returns the patterns of the repositories to skip.
+     * 
+     * @return Comma separated globs or "regex:" patterns or
+     *         <code>null</code> to skip none.
+     */
+    public final String getExclude() {
+        return exclude;
+    }
 
-            }
+    /**
+     * Sets the patterns of the repositories to skip.
+     * 
+     * @param exclude
+     *            Comma separated globs or "regex:" patterns or
+     *            <code>null</code> to skip none.
+     */
+    public final void setExclude(final String exclude) {
+        this.exclude = exclude;
+    }
 
-        } finally {
-            MDC.remove(MDC_TASK_KEY);
+    /**
+     * Returns the maximum number of repositories that are cloned at the same
+     * time.
+     * 
+     * @return Number of parallel clones. In case the value is not set this
+     *         defaults to the number of available processors.
+     */
+    public final int getParallelism() {
+        if (parallelism == null) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return parallelism;
+    }
+
+    /**
+     * Sets the maximum number of repositories that are cloned at the same
+     * time.
+     * 
+     * @param parallelism
+     *            Number of parallel clones or <code>null</code> to use the
+     *            number of available processors.
+     */
+    public final void setParallelism(@Min(1) final Integer parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the default depth of a shallow clone.
+     * 
+     * @return Number of commits to fetch or <code>null</code> for a full
+     *         history.
+     */
+    public final Integer getDepth() {
+        return depth;
+    }
+
+    /**
+     * Sets the default depth of a shallow clone.
+     * 
+     * @param depth
+     *            Number of commits to fetch or <code>null</code> for a full
+     *            history.
+     */
+    public final void setDepth(@Min(1) final Integer depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * Returns the default partial clone filter.
+     * 
+     * @return Filter like "blob:none" or "tree:0" or <code>null</code> to
+     *         fetch all objects.
+     */
+    public final String getFilter() {
+        return filter;
+    }
+
+    /**
+     * Sets the default partial clone filter.
+     * 
+     * @param filter
+     *            Filter like "blob:none" or "tree:0" or <code>null</code> to
+     *            fetch all objects.
+     */
+    public final void setFilter(
+            @Pattern(regexp = FILTER_PATTERN) final String filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Returns if by default only the history of a single branch is fetched.
+     * 
+     * @return TRUE for a single branch clone, FALSE for all branches or
+     *         <code>null</code> to use git's default.
+     */
+    public final Boolean getSingleBranch() {
+        return singleBranch;
+    }
+
+    /**
+     * Sets if by default only the history of a single branch is fetched.
+     * 
+     * @param singleBranch
+     *            TRUE for a single branch clone, FALSE for all branches or
+     *            <code>null</code> to use git's default.
+     */
+    public final void setSingleBranch(final Boolean singleBranch) {
+        this.singleBranch = singleBranch;
+    }
+
+    /**
+     * Returns the directory of the local mirror cache.
+     * 
+     * @return Cache directory like "~/.cache/devsupwiz/git-mirrors" or
+     *         <code>null</code> if no cache is used.
+     */
+    public final String getMirrorCache() {
+        return mirrorCache;
+    }
+
+    /**
+     * Returns the directory of the local mirror cache as file.
+     * 
+     * @return Cache directory or <code>null</code> if no cache is used.
+     */
+    public final File getMirrorCacheFile() {
+        if (mirrorCache == null) {
+            return null;
+        }
+        return toFile(mirrorCache);
+    }
+
+    /**
+     * Sets the directory of the local mirror cache.
+     * 
+     * @param mirrorCache
+     *            Cache directory like "~/.cache/devsupwiz/git-mirrors" or
+     *            <code>null</code> to use no cache.
+     */
+    public final void setMirrorCache(final String mirrorCache) {
+        this.mirrorCache = mirrorCache;
+    }
+
+    /**
+     * Returns the directory with local working copies that are used to seed
+     * the clones.
+     * 
+     * @return Seed directory like "/opt/seed-repos" or <code>null</code> if
+     *         no seed is used.
+     */
+    public final String getSeedDir() {
+        return seedDir;
+    }
+
+    /**
+     * Returns the directory with local working copies as file.
+     * 
+     * @return Seed directory or <code>null</code> if no seed is used.
+     */
+    public final File getSeedDirFile() {
+        if (seedDir == null) {
+            return null;
+        }
+        return toFile(seedDir);
+    }
+
+    /**
+     * Sets the directory with local working copies that are used to seed the
+     * clones.
+     * 
+     * @param seedDir
+     *            Seed directory like "/opt/seed-repos" or <code>null</code>
+     *            to use no seed.
+     */
+    public final void setSeedDir(final String seedDir) {
+        this.seedDir = seedDir;
+    }
+
+    /**
+     * Returns the maximum size of the mirror cache.
+     * 
+     * @return Size in megabytes. In case the value is not set this defaults
+     *         to {@link #DEFAULT_MIRROR_CACHE_LIMIT}.
+     */
+    public final int getMirrorCacheLimit() {
+        if (mirrorCacheLimit == null) {
+            return DEFAULT_MIRROR_CACHE_LIMIT;
+        }
+        return mirrorCacheLimit;
+    }
+
+    /**
+     * Sets the maximum size of the mirror cache.
+     * 
+     * @param mirrorCacheLimit
+     *            Size in megabytes or <code>null</code> for the default.
+     */
+    public final void setMirrorCacheLimit(@Min(1) final Integer mirrorCacheLimit) {
+        this.mirrorCacheLimit = mirrorCacheLimit;
+    }
+
+    /**
+     * Defines if existing clones are fetched instead of cloned again.
+     * 
+     * @return TRUE if repositories that already exist in the target directory
+     *         are updated. In case the value is <code>null</code> this
+     *         defaults to FALSE.
+     */
+    public final boolean isSync() {
+        if (sync == null) {
+            return false;
+        }
+        return sync;
+    }
+
+    /**
+     * Defines if existing clones are fetched instead of cloned again.
+     * 
+     * @return TRUE if repositories that already exist in the target directory
+     *         are updated or <code>null</code> if undefined.
+     */
+    public final Boolean getSync() {
+        return sync;
+    }
+
+    /**
+     * Defines if existing clones are fetched instead of cloned again.
+     * 
+     * @param sync
+     *            TRUE if repositories that already exist in the target
+     *            directory are updated.
+     */
+    public final void setSync(final Boolean sync) {
+        this.sync = sync;
+    }
+
+    /**
+     * Defines if repositories are optimized after they were cloned or
+     * fetched.
+     * 
+     * @return TRUE if the commit-graph and multi-pack-index are written and
+     *         background maintenance is registered. In case the value is
+     *         <code>null</code> this defaults to FALSE.
+     */
+    public final boolean isOptimize() {
+        if (optimize == null) {
+            return false;
+        }
+        return optimize;
+    }
+
+    /**
+     * Defines if repositories are optimized after they were cloned or
+     * fetched.
+     * 
+     * @return TRUE if repositories are optimized or <code>null</code> if
+     *         undefined.
+     */
+    public final Boolean getOptimize() {
+        return optimize;
+    }
+
+    /**
+     * Defines if repositories are optimized after they were cloned or
+     * fetched.
+     * 
+     * @param optimize
+     *            TRUE if repositories are optimized or <code>null</code> for
+     *            the default.
+     */
+    public final void setOptimize(final Boolean optimize) {
+        this.optimize = optimize;
+    }
+
+    /**
+     * Defines if the free space of the target file system is checked before
+     * cloning.
+     * 
+     * @return TRUE if the clone fails fast in case the repositories don't
+     *         fit on the disk. In case the value is <code>null</code> this
+     *         defaults to TRUE.
+     */
+    public final boolean isPreflight() {
+        if (preflight == null) {
+            return true;
+        }
+        return preflight;
+    }
+
+    /**
+     * Defines if the free space of the target file system is checked before
+     * cloning.
+     * 
+     * @return TRUE if the target is checked or <code>null</code> if
+     *         undefined.
+     */
+    public final Boolean getPreflight() {
+        return preflight;
+    }
+
+    /**
+     * Defines if the free space of the target file system is checked before
+     * cloning.
+     * 
+     * @param preflight
+     *            TRUE if the target is checked or <code>null</code> for the
+     *            default.
+     */
+    public final void setPreflight(final Boolean preflight) {
+        this.preflight = preflight;
+    }
+
+    /**
+     * Defines if the write throughput of the target file system is measured
+     * during the preflight to limit the number of parallel clones. This
+     * writes a test file of 16 MB and is only done if the parallelism is not
+     * configured.
+     * 
+     * @return TRUE if the throughput is measured. In case the value is
+     *         <code>null</code> this defaults to FALSE.
+     */
+    public final boolean isMeasureThroughput() {
+        if (measureThroughput == null) {
+            return false;
+        }
+        return measureThroughput;
+    }
+
+    /**
+     * Defines if the write throughput of the target file system is measured
+     * during the preflight to limit the number of parallel clones.
+     * 
+     * @return TRUE if the throughput is measured or <code>null</code> if
+     *         undefined.
+     */
+    public final Boolean getMeasureThroughput() {
+        return measureThroughput;
+    }
+
+    /**
+     * Defines if the write throughput of the target file system is measured
+     * during the preflight to limit the number of parallel clones.
+     * 
+     * @param measureThroughput
+     *            TRUE if the throughput is measured or <code>null</code> for
+     *            the default.
+     */
+    public final void setMeasureThroughput(final Boolean measureThroughput) {
+        this.measureThroughput = measureThroughput;
+    }
+
+    /**
+     * Defines if the dependencies of cloned Maven projects are downloaded
+     * into the local repository after cloning.
+     * 
+     * @return TRUE if "dependency:go-offline" is executed for every
+     *         repository with a "pom.xml". In case the value is
+     *         <code>null</code> this defaults to FALSE.
+     */
+    public final boolean isWarmUp() {
+        if (warmUp == null) {
+            return false;
         }
+        return warmUp;
+    }
 
+    /**
+     * Defines if the dependencies of cloned Maven projects are downloaded
+     * into the local repository after cloning.
+     * 
+     * @return TRUE if dependencies are downloaded or <code>null</code> if
+     *         undefined.
+     */
+    public final Boolean getWarmUp() {
+        return warmUp;
+    }
+
+    /**
+     * Defines if the dependencies of cloned Maven projects are downloaded
+     * into the local repository after cloning.
+     * 
+     * @param warmUp
+     *            TRUE if dependencies are downloaded or <code>null</code> for
+     *            the default.
+     */
+    public final void setWarmUp(final Boolean warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    /**
+     * Returns the number of Maven projects resolved in parallel.
+     * 
+     * @return Number of parallel Maven processes. In case the value is not
+     *         set this defaults to {@link #DEFAULT_WARM_UP_PARALLELISM}.
+     */
+    public final int getWarmUpParallelism() {
+        if (warmUpParallelism == null) {
+            return DEFAULT_WARM_UP_PARALLELISM;
+        }
+        return warmUpParallelism;
+    }
+
+    /**
+     * Sets the number of Maven projects resolved in parallel.
+     * 
+     * @param warmUpParallelism
+     *            Number of parallel Maven processes or <code>null</code> for
+     *            the default.
+     */
+    public final void setWarmUpParallelism(
+            @Min(1) final Integer warmUpParallelism) {
+        this.warmUpParallelism = warmUpParallelism;
+    }
+
+    /**
+     * Returns the Maven command used for the warm-up.
+     * 
+     * @return Command like "/opt/maven/bin/mvn". In case the value is not set
+     *         this defaults to {@link #DEFAULT_MAVEN_EXECUTABLE}.
+     */
+    public final String getMavenExecutable() {
+        if (mavenExecutable == null) {
+            return DEFAULT_MAVEN_EXECUTABLE;
+        }
+        return mavenExecutable;
+    }
+
+    /**
+     * Sets the Maven command used for the warm-up.
+     * 
+     * @param mavenExecutable
+     *            Command or <code>null</code> for the default.
+     */
+    public final void setMavenExecutable(final String mavenExecutable) {
+        this.mavenExecutable = mavenExecutable;
+    }
+
+    /**
+     * Returns the Maven settings file used for the warm-up.
+     * 
+     * @return Settings file or <code>null</code> for the default.
+     */
+    public final String getMavenSettings() {
+        return mavenSettings;
+    }
+
+    /**
+     * Sets the Maven settings file used for the warm-up.
+     * 
+     * @param mavenSettings
+     *            Settings file like "~/.m2/settings-nexus.xml" or
+     *            <code>null</code> for the default.
+     */
+    public final void setMavenSettings(final String mavenSettings) {
+        this.mavenSettings = mavenSettings;
+    }
+
+    /**
+     * Returns the local Maven repository the warm-up downloads into.
+     * 
+     * @return Local repository or <code>null</code> for the default.
+     */
+    public final String getMavenLocalRepo() {
+        return mavenLocalRepo;
+    }
+
+    /**
+     * Sets the local Maven repository the warm-up downloads into.
+     * 
+     * @param mavenLocalRepo
+     *            Local repository like "/data/m2" or <code>null</code> for
+     *            the default "~/.m2/repository".
+     */
+    public final void setMavenLocalRepo(final String mavenLocalRepo) {
+        this.mavenLocalRepo = mavenLocalRepo;
+    }
+
+    /**
+     * Returns the maximum number of attempts per repository.
+     * 
+     * @return Number of attempts. In case the value is not set this defaults
+     *         to {@link #DEFAULT_ATTEMPTS}.
+     */
+    public final int getAttempts() {
+        if (attempts == null) {
+            return DEFAULT_ATTEMPTS;
+        }
+        return attempts;
+    }
+
+    /**
+     * Sets the maximum number of attempts per repository.
+     * 
+     * @param attempts
+     *            Number of attempts or <code>null</code> for the default.
+     */
+    public final void setAttempts(@Min(1) final Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    /**
+     * Returns the delay before the first retry. The delay is doubled for
+     * every further retry.
+     * 
+     * @return Delay in seconds. In case the value is not set this defaults to
+     *         {@link #DEFAULT_RETRY_DELAY}.
+     */
+    public final int getRetryDelay() {
+        if (retryDelay == null) {
+            return DEFAULT_RETRY_DELAY;
+        }
+        return retryDelay;
+    }
+
+    /**
+     * Sets the delay before the first retry.
+     * 
+     * @param retryDelay
+     *            Delay in seconds or <code>null</code> for the default.
+     */
+    public final void setRetryDelay(@Min(0) final Integer retryDelay) {
+        this.retryDelay = retryDelay;
+    }
+
+    /**
+     * Returns the file with sizes and durations recorded in previous runs.
+     * 
+     * @return Statistics file name. In case the value is not set this
+     *         defaults to {@link #DEFAULT_STATS_FILE}.
+     */
+    public final String getStatsFile() {
+        if (statsFile == null) {
+            return DEFAULT_STATS_FILE;
+        }
+        return statsFile;
+    }
+
+    /**
+     * Sets the file with sizes and durations recorded in previous runs.
+     * 
+     * @param statsFile
+     *            Statistics file name or <code>null</code> for the default.
+     */
+    public final void setStatsFile(final String statsFile) {
+        this.statsFile = statsFile;
+    }
+
+    /**
+     * Returns the number of seconds a clone or fetch may run without any
+     * progress before it is aborted.
+     * 
+     * @return Seconds or <code>0</code> if the watchdog is disabled. In case
+     *         the value is not set this defaults to
+     *         {@link #DEFAULT_STALL_TIMEOUT}.
+     */
+    public final int getStallTimeout() {
+        if (stallTimeout == null) {
+            return DEFAULT_STALL_TIMEOUT;
+        }
+        return stallTimeout;
+    }
+
+    /**
+     * Sets the number of seconds a clone or fetch may run without any
+     * progress before it is aborted.
+     * 
+     * @param stallTimeout
+     *            Seconds, <code>0</code> to disable the watchdog or
+     *            <code>null</code> for the default.
+     */
+    public final void setStallTimeout(@Min(0) final Integer stallTimeout) {
+        this.stallTimeout = stallTimeout;
+    }
+
+    /**
+     * Returns the engine used to clone and fetch repositories.
+     * 
+     * @return {@link #ENGINE_NATIVE} or {@link #ENGINE_EMBEDDED}. In case the
+     *         value is not set this defaults to {@link #ENGINE_NATIVE}.
+     */
+    public final String getEngine() {
+        if (engine == null) {
+            return ENGINE_NATIVE;
+        }
+        return engine;
+    }
+
+    /**
+     * Sets the engine used to clone and fetch repositories.
+     * 
+     * @param engine
+     *            {@link #ENGINE_NATIVE}, {@link #ENGINE_EMBEDDED} or
+     *            <code>null</code> for the default.
+     */
+    public final void setEngine(
+            @Pattern(regexp = ENGINE_PATTERN) final String engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Returns the maximum duration of a single clone or fetch. A timeout
+     * configured on the repository wins. Otherwise the duration of the last
+     * successful clone from the repository URL is multiplied with a safety
+     * factor. Without any information there is no hard limit and only the
+     * stall watchdog applies.
+     * 
+     * @param repository
+     *            Repository to process.
+     * @param stats
+     *            Statistics from previous runs.
+     * 
+     * @return Seconds or <code>0</code> for no limit.
+     */
+    final int getTimeout(@NotNull final GitRepository repository,
+            @NotNull final GitCloneStats stats) {
+        if (repository.getTimeout() != null) {
+            return repository.getTimeout();
+        }
+        final Long millis = stats.getMillis(repository.getUrl());
+        if (millis == null) {
+            return 0;
+        }
+        return (int) Math.max(MIN_LEARNED_TIMEOUT,
+                millis * LEARNED_TIMEOUT_FACTOR / 1000);
+    }
+
+    /**
+     * Adds a listener that is informed about the progress of the
+     * repositories.
+     * 
+     * @param listener
+     *            Listener to add.
+     */
+    public final void addListener(@NotNull final GitCloneListener listener) {
+        getListeners().add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     * 
+     * @param listener
+     *            Listener to remove.
+     */
+    public final void removeListener(@NotNull final GitCloneListener listener) {
+        getListeners().remove(listener);
+    }
+
+    private synchronized List<GitCloneListener> getListeners() {
+        if (listeners == null) {
+            listeners = new CopyOnWriteArrayList<>();
+        }
+        return listeners;
+    }
+
+    private void fireStarted(final GitRepository repository) {
+        for (final GitCloneListener listener : getListeners()) {
+            listener.started(repository);
+        }
+    }
+
+    private void fireProgress(final GitCloneProgress progress) {
+        for (final GitCloneListener listener : getListeners()) {
+            listener.progress(progress);
+        }
+    }
+
+    private void fireFinished(final GitCloneResult result) {
+        for (final GitCloneListener listener : getListeners()) {
+            listener.finished(result);
+        }
+    }
+
+    /**
+     * Cancels a running execution. Repositories that are waiting are skipped,
+     * running git commands are killed and the directories of unfinished
+     * clones are removed. Clones that finished before are kept, so a later
+     * execution only processes the remaining repositories. Calling this
+     * method while the task is not running has no effect.
+     */
+    public final void cancel() {
+        final CancellationToken token = cancellation;
+        if (token != null) {
+            LOG.info("Cancelling {}", getTypeId());
+            token.cancel();
+        }
+    }
+
+    /**
+     * Determines if the current or last execution was cancelled.
+     * 
+     * @return TRUE if {@link #cancel()} was called during the execution.
+     */
+    public final boolean isCancelled() {
+        final CancellationToken token = cancellation;
+        return token != null && token.isCancelled();
+    }
+
+    @Override
+    public final void execute() {
+
+        MDC.put(MDC_TASK_KEY, getTypeId());
+        cancellation = new CancellationToken();
+        try {
+
+            if (!getTargetDirFile().exists()) {
+                getTargetDirFile().mkdirs();
+            }
+
+            if (results == null) {
+                results = Collections.synchronizedMap(new LinkedHashMap<>());
+            }
+            final GitRepositoryFilter filter = new GitRepositoryFilter(
+                    include, exclude);
+            final List<GitRepository> repos = new ArrayList<>();
+            for (final GitRepository repository : getRepositories()) {
+                if (isPending(filter, repository)) {
+                    repos.add(repository);
+                }
+            }
+            final File manifestFile = getManifestFile();
+            if (repos.isEmpty() && manifestFile == null) {
+                return;
+            }
+            final GitCloneStats stats = new GitCloneStats(
+                    toFile(getStatsFile()));
+            int threads;
+            if (manifestFile == null) {
+                threads = Math.max(1, Math.min(getParallelism(), repos.size()));
+            } else {
+                threads = getParallelism();
+            }
+            if (isPreflight()) {
+                threads = preflight(stats, filter, repos, manifestFile,
+                        threads);
+            }
+            LOG.info("Cloning {} repositories using {} parallel workers",
+                    repos.size(), threads);
+
+            final GitMirrorCache cache = createMirrorCache();
+            final GitCloneSources sources = new GitCloneSources(this, cache,
+                    stats, cancellation, this::fireProgress);
+            final GitCloneWorkers workers = new GitCloneWorkers(threads,
+                    getTypeId(),
+                    repository -> process(sources, stats, repository),
+                    cancellation);
+            try {
+                for (final GitRepository repository : new GitCloneScheduler(
+                        stats).schedule(repos, threads)) {
+                    workers.submit(repository);
+                }
+                if (manifestFile != null) {
+                    readManifest(manifestFile, filter, workers::submit);
+                }
+                workers.await();
+                finish(workers);
+            } finally {
+                workers.shutdown();
+                stats.save();
+                if (cache != null) {
+                    cache.evict();
+                }
+            }
+
+        } finally {
+            MDC.remove(MDC_TASK_KEY);
+        }
+
+    }
+
+    /**
+     * Determines if a repository has to be processed. It needs to be
+     * selected by the include and exclude patterns and must not have been
+     * processed successfully before.
+     * 
+     * @param filter
+     *            Include and exclude patterns.
+     * @param repository
+     *            Repository to test.
+     * 
+     * @return TRUE if the repository has to be cloned or fetched.
+     */
+    private boolean isPending(final GitRepositoryFilter filter,
+            final GitRepository repository) {
+        if (!filter.matches(repository.getUrl())) {
+            LOG.debug("Skipped not included {}", repository);
+            return false;
+        }
+        final GitCloneResult result = results.get(repository.getUrl());
+        if (result != null && result.isSuccess()) {
+            LOG.info("Skipped already processed {}", repository);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the manifest and passes the selected repositories on while
+     * reading. When submitting to the workers, the number of repositories
+     * waiting for a free worker is limited, so the manifest is never kept in
+     * memory completely.
+     * 
+     * @param file
+     *            Manifest to read.
+     * @param filter
+     *            Include and exclude patterns.
+     * @param consumer
+     *            Receives the repositories to process.
+     */
+    private void readManifest(final File file,
+            final GitRepositoryFilter filter,
+            final Consumer<GitRepository> consumer) {
+        LOG.info("Reading repositories from manifest {}", file);
+        try (final GitManifestReader reader = new GitManifestReader(file)) {
+            GitRepository repository;
+            while (!isCancelled() && (repository = reader.next()) != null) {
+                if (isPending(filter, repository)) {
+                    consumer.accept(repository);
+                }
+            }
+        } catch (final IOException ex) {
+            throw new RuntimeException(
+                    "Failed to read manifest " + file + ": " + ex.getMessage(),
+                    ex);
+        }
+    }
+
+    /**
+     * Verifies that the repositories fit on the target file system. If the
+     * throughput is measured and the parallelism was not configured
+     * explicitly, the number of parallel clones is limited to what the file
+     * system is able to write.
+     * 
+     * @param stats
+     *            Sizes recorded in previous runs.
+     * @param filter
+     *            Include and exclude patterns.
+     * @param repos
+     *            Repositories of the configuration to process.
+     * @param manifestFile
+     *            Manifest file or <code>null</code>.
+     * @param threads
+     *            Number of parallel clones so far.
+     * 
+     * @return Number of parallel clones to use.
+     */
+    private int preflight(final GitCloneStats stats,
+            final GitRepositoryFilter filter, final List<GitRepository> repos,
+            final File manifestFile, final int threads) {
+        final GitClonePreflight preflight = new GitClonePreflight(
+                getTargetDirFile(), stats);
+        final Consumer<GitRepository> consumer = repository -> {
+            // Existing directories are fetched (sync) or rejected
+            if (!new File(getTargetDirFile(), repository.getName()).exists()) {
+                preflight.add(repository);
+            }
+        };
+        repos.forEach(consumer);
+        if (manifestFile != null) {
+            readManifest(manifestFile, filter, consumer);
+        }
+        preflight.run();
+        if (!isMeasureThroughput() || parallelism != null) {
+            return threads;
+        }
+        preflight.measureThroughput();
+        final int suggested = preflight.suggestParallelism(threads);
+        if (suggested < threads) {
+            LOG.warn("Limited parallel workers from {} to {}, because {} "
+                    + "writes only {}/s and a clone needs about {}/s "
+                    + "(Set 'parallelism' to override)", threads, suggested,
+                    getTargetDirFile(),
+                    FileUtils.byteCountToDisplaySize(
+                            preflight.getBytesPerSecond()),
+                    FileUtils.byteCountToDisplaySize(
+                            GitClonePreflight.BYTES_PER_SECOND_PER_CLONE));
+        }
+        return suggested;
+    }
+
+    /**
+     * Downloads the dependencies of the Maven projects among the repositories
+     * that were processed successfully. Failures are only logged.
+     * 
+     * @param dirs
+     *            Directories of the processed repositories.
+     */
+    private void warmUp(final List<File> dirs) {
+        final MavenWarmUp warmUp = new MavenWarmUp(getMavenExecutable(),
+                mavenSettings == null ? null : toFile(mavenSettings),
+                mavenLocalRepo == null ? null : toFile(mavenLocalRepo),
+                getWarmUpParallelism(), cancellation);
+        final List<File> failed = warmUp.run(dirs);
+        if (!failed.isEmpty()) {
+            LOG.warn("Failed to resolve the dependencies of {}", failed);
+        }
+    }
+
+    private GitMirrorCache createMirrorCache() {
+        final File dir = getMirrorCacheFile();
+        if (dir == null) {
+            return null;
+        }
+        return new GitMirrorCache(dir, getMirrorCacheLimit() * 1024L * 1024L,
+                getStallTimeout());
+    }
+
+    /**
+     * Warms up the repositories that were processed and reports the ones that
+     * failed.
+     * 
+     * @param workers
+     *            Workers that processed all repositories.
+     * 
+     * @throws CancellationException
+     *             The task was cancelled.
+     * @throws RuntimeException
+     *             At least one repository failed.
+     */
+    private void finish(final GitCloneWorkers workers) {
+        final int count = workers.getCount();
+        final List<String> failures = workers.getFailures();
+        if (isWarmUp() && !isCancelled()) {
+            final List<File> dirs = new ArrayList<>();
+            for (final GitRepository repository : workers.getProcessed()) {
+                dirs.add(new File(getTargetDirFile(), repository.getName()));
+            }
+            warmUp(dirs);
+        }
+        if (isCancelled()) {
+            throw new CancellationException("Cancelled after "
+                    + (count - failures.size()) + " of " + count
+                    + " repositories were processed");
+        }
+        if (!failures.isEmpty()) {
+            throw new RuntimeException("Failed to clone " + failures.size()
+                    + " of " + count + " repositories: " + failures);
+        }
+    }
+
+    private GitCloneResult process(final GitCloneSources sources,
+            final GitCloneStats stats, final GitRepository repository) {
+        try {
+            return processRepository(sources, stats, repository);
+        } catch (final RuntimeException ex) {
+            LOG.error("Failed to process " + repository, ex);
+            return addResult(new GitCloneResult(repository, false, 1, 0, 0,
+                    String.valueOf(ex)));
+        }
+    }
+
+    /**
+     * Clones or fetches a repository. Failed attempts are retried with an
+     * exponentially growing delay until the maximum number of attempts is
+     * reached. An existing directory fails immediately if sync is off.
+     * 
+     * @param sources
+     *            Sources to create a new clone from.
+     * @param stats
+     *            Statistics to record the size of successful clones.
+     * @param repository
+     *            Repository to process.
+     * 
+     * @return Result that was also stored in the task.
+     */
+    private GitCloneResult processRepository(final GitCloneSources sources,
+            final GitCloneStats stats, final GitRepository repository) {
+        MDC.put(MDC_TASK_KEY, getTypeId() + "/" + repository.getName());
+        try {
+            if (isCancelled()) {
+                return addResult(new GitCloneResult(repository, false, 0, 0,
+                        0, "Cancelled"));
+            }
+            for (final String sparseDir : repository.getSparseDirs()) {
+                if (!GitSparseCheckout.isValidDir(sparseDir)) {
+                    LOG.error("Invalid sparse directory '{}' for {}",
+                            sparseDir, repository);
+                    return addResult(new GitCloneResult(repository, false, 0,
+                            0, 0, "Invalid sparse directory: " + sparseDir));
+                }
+            }
+            final File dir = new File(getTargetDirFile(), repository.getName());
+            if (!isSync() && dir.exists()) {
+                // Cloning would fail the same way on every attempt
+                LOG.error("Directory {} already exists - Enable 'sync' to "
+                        + "fetch it", dir);
+                return addResult(new GitCloneResult(repository, false, 0, 0,
+                        0, "Directory " + dir + " exists - enable sync"));
+            }
+            fireStarted(repository);
+            final int timeout = getTimeout(repository, stats);
+            final long start = System.currentTimeMillis();
+            long delay = getRetryDelay() * 1000L;
+            int attempt = 0;
+            String message = null;
+            while (attempt < getAttempts()) {
+                attempt++;
+                message = attempt(sources, repository, dir, timeout);
+                if (message == null) {
+                    if (isOptimize()) {
+                        try {
+                            optimizeRepository(dir, timeout);
+                        } catch (final CancellationException ex) {
+                            LOG.info("Cancelled optimizing {}", repository);
+                            message = "Cancelled";
+                            break;
+                        }
+                    }
+                    final long millis = System.currentTimeMillis() - start;
+                    final long bytes = FileUtils
+                            .sizeOfDirectory(new File(dir, ".git"));
+                    stats.recordBytes(repository.getUrl(), bytes);
+                    return addResult(new GitCloneResult(repository, true,
+                            attempt, millis, bytes, null));
+                }
+                if (isCancelled()) {
+                    message = "Cancelled";
+                    break;
+                }
+                LOG.warn("Attempt {} of {} failed: {}", attempt, getAttempts(),
+                        message);
+                if (attempt < getAttempts() && cancellation.await(delay)) {
+                    message = "Cancelled";
+                    break;
+                }
+                delay = Math.min(delay * 2, MAX_RETRY_DELAY * 1000L);
+            }
+            return addResult(new GitCloneResult(repository, false, attempt,
+                    System.currentTimeMillis() - start, 0, message));
+        } finally {
+            MDC.remove(MDC_TASK_KEY);
+        }
+    }
+
+    /**
+     * Writes the commit-graph with Bloom filters and the multi-pack-index,
+     * enables the untracked cache (And the file system monitor where git has
+     * a built-in one) and registers the repository for background
+     * maintenance. All steps are optional, so a failure is only logged. A
+     * cancellation stops the optimization.
+     * 
+     * @param dir
+     *            Directory of the local repository.
+     * @param timeout
+     *            Maximum number of seconds per step or <code>0</code> for no
+     *            limit.
+     * 
+     * @throws CancellationException
+     *             The task was cancelled.
+     */
+    private void optimizeRepository(final File dir, final int timeout) {
+        LOG.info("Optimizing {}", dir);
+        final List<List<String>> commands = new ArrayList<>();
+        for (final String[] command : OPTIMIZE_COMMANDS) {
+            commands.add(Arrays.asList(command));
+        }
+        if (SystemUtils.IS_OS_WINDOWS || SystemUtils.IS_OS_MAC) {
+            commands.add(
+                    Arrays.asList("git", "config", "core.fsmonitor", "true"));
+        }
+        commands.add(Arrays.asList("git", "maintenance", "register"));
+        for (final List<String> command : commands) {
+            final String line = String.join(" ", command);
+            try {
+                final int result = ProcessCommand.execute(command, dir, timeout,
+                        cancellation);
+                if (result != 0) {
+                    LOG.warn("Optimization '{}' failed with exit code {}",
+                            line, result);
+                }
+            } catch (final CancellationException ex) {
+                throw ex;
+            } catch (final RuntimeException ex) {
+                LOG.warn("Optimization '{}' failed: {}", line,
+                        ex.getMessage());
+            }
+        }
+    }
+
+    private GitCloneResult addResult(final GitCloneResult result) {
+        results.put(result.getRepository().getUrl(), result);
+        fireFinished(result);
+        return result;
+    }
+
+    /**
+     * Executes a single attempt to clone or fetch a repository. A directory
+     * that was created by a failed clone is removed again.
+     * 
+     * @param sources
+     *            Sources to create a new clone from.
+     * @param repository
+     *            Repository to process.
+     * @param dir
+     *            Directory of the local repository.
+     * @param timeout
+     *            Maximum number of seconds for the attempt or <code>0</code>
+     *            for no limit.
+     * 
+     * @return <code>null</code> if the attempt succeeded, else the reason of
+     *         the failure.
+     */
+    private String attempt(final GitCloneSources sources,
+            final GitRepository repository, final File dir,
+            final int timeout) {
+        final boolean existed = dir.exists();
+        String message;
+        try {
+            int result;
+            if (isSync() && existed) {
+                result = fetchRepository(sources, dir, repository, timeout);
+            } else {
+                result = sources.cloneRepository(repository, timeout);
+                if (result == 0 && !repository.getSparseDirs().isEmpty()) {
+                    result = sparseCheckout(dir, repository, timeout);
+                }
+            }
+            if (result == 0) {
+                return null;
+            }
+            message = "Exit code " + result;
+        } catch (final CancellationException ex) {
+            LOG.info("Cancelled {}", repository);
+            message = "Cancelled";
+        } catch (final RuntimeException ex) {
+            LOG.error("Failed to process " + repository, ex);
+            message = ex.getMessage();
+        }
+        if (!existed && dir.exists()) {
+            FileUtils.deleteQuietly(dir);
+        }
+        return message;
+    }
+
+    private int fetchRepository(final GitCloneSources sources,
+            final File dir, final GitRepository repository,
+            final int timeout) {
+        if (!new File(dir, ".git").exists()) {
+            LOG.error("Directory exists, but is not a git working tree: {}",
+                    dir);
+            return -1;
+        }
+        final String remoteUrl = ProcessCommand.query(
+                Arrays.asList("git", "config", "--get", "remote.origin.url"),
+                dir, QUERY_TIMEOUT_SECONDS);
+        if (!sameUrl(repository.getUrl(), remoteUrl)) {
+            LOG.error("Directory {} is a clone of '{}' and not of '{}'", dir,
+                    remoteUrl, repository.getUrl());
+            return -1;
+        }
+        LOG.info("Fetching existing clone {}", dir);
+        if (ENGINE_EMBEDDED.equals(getEngine())) {
+            new GitEmbeddedEngine(getStallTimeout(), cancellation)
+                    .fetchRepository(
+                    repository, dir, timeout, this::fireProgress);
+            return 0;
+        }
+        return sources.execute(FETCH_COMMAND, dir, repository, timeout);
+    }
+
+    /**
+     * Restricts the working tree of a clone to the configured directories.
+     * The clone was created with "--sparse", so only files in the root
+     * directory have been checked out so far.
+     * 
+     * @param dir
+     *            Directory of the clone.
+     * @param repository
+     *            Repository with sparse directories.
+     * @param timeout
+     *            Maximum number of seconds or <code>0</code> for no limit.
+     * 
+     * @return Exit code of the first command that failed or <code>0</code>.
+     */
+    private int sparseCheckout(final File dir, final GitRepository repository,
+            final int timeout) {
+        LOG.info("Sparse checkout of {}", repository.getSparseDirs());
+        final int result = ProcessCommand.execute(
+                Arrays.asList("git", "sparse-checkout", "init", "--cone"), dir,
+                QUERY_TIMEOUT_SECONDS, cancellation);
+        if (result != 0) {
+            return result;
+        }
+        final List<String> command = new ArrayList<>(
+                Arrays.asList("git", "sparse-checkout", "set", "--"));
+        command.addAll(repository.getSparseDirs());
+        return ProcessCommand.execute(command, dir, timeout, cancellation);
+    }
+
+    /**
+     * Determines if two repository URLs point to the same remote. Trailing
+     * slashes and a ".git" suffix are ignored.
+     * 
+     * @param expected
+     *            URL from the configuration.
+     * @param actual
+     *            URL configured in an existing clone or <code>null</code>.
+     * 
+     * @return TRUE if both URLs are considered the same.
+     */
+    static boolean sameUrl(@NotEmpty final String expected,
+            final String actual) {
+        if (actual == null) {
+            return false;
+        }
+        return normalizeUrl(expected).equals(normalizeUrl(actual));
+    }
+
+    private static String normalizeUrl(final String url) {
+        final String str = StringUtils.stripEnd(url.trim(), "/");
+        return StringUtils.removeEnd(str, ".git");
+    }
+
+    static File toFile(final String path) {
+        return new File(StringUtils.replace(path, "~",
+                Utils4J.getUserHomeDir().toString()));
+    }
+
+    /**
+     * Returns the name of the directory git creates for a repository URL.
+     * 
+     * @param repository
+     *            Repository URL like
+     *            "git@bitbucket.org:my_account/my-project.git".
+     * 
+     * @return Last path segment without ".git" like "my-project".
+     */
+    static String getRepositoryName(@NotEmpty final String repository) {
+        String name = StringUtils.stripEnd(repository.trim(), "/");
+        name = StringUtils.removeEnd(name, ".git");
+        name = StringUtils.stripEnd(name, "/");
+        final int p = Math.max(name.lastIndexOf('/'), name.lastIndexOf(':'));
+        return name.substring(p + 1);
     }
 
     @Override
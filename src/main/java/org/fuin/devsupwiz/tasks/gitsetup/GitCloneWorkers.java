@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fixed number of threads that process the submitted repositories. The
+ * submitter blocks while too many repositories are waiting for a free
+ * thread, so repositories read from a large manifest are never queued
+ * completely.
+ */
+final class GitCloneWorkers {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(GitCloneWorkers.class);
+
+    private final ExecutorService executor;
+
+    private final Semaphore slots;
+
+    private final Function<GitRepository, GitCloneResult> processor;
+
+    private final CancellationToken token;
+
+    private final Queue<String> failures;
+
+    private final Queue<GitRepository> processed;
+
+    private int count;
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param threads
+     *            Number of repositories processed in parallel.
+     * @param name
+     *            Prefix for the names of the threads.
+     * @param processor
+     *            Clones or fetches a single repository.
+     * @param token
+     *            Stops accepting repositories when cancelled.
+     */
+    GitCloneWorkers(@Min(1) final int threads, @NotEmpty final String name,
+            @NotNull final Function<GitRepository, GitCloneResult> processor,
+            @NotNull final CancellationToken token) {
+        super();
+        final AtomicInteger number = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable,
+                    name + "-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.slots = new Semaphore(threads * 2);
+        this.processor = processor;
+        this.token = token;
+        this.failures = new ConcurrentLinkedQueue<>();
+        this.processed = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Hands a repository to the next free thread. Blocks while too many
+     * repositories are waiting. Nothing happens once the token was cancelled.
+     * 
+     * @param repository
+     *            Repository to process.
+     */
+    void submit(@NotNull final GitRepository repository) {
+        if (token.isCancelled()) {
+            return;
+        }
+        try {
+            slots.acquire();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(
+                    "Interrupted while submitting " + repository, ex);
+        }
+        count++;
+        executor.execute(() -> {
+            try {
+                final GitCloneResult result = processor.apply(repository);
+                LOG.info("{}", result);
+                if (result.isSuccess()) {
+                    processed.add(repository);
+                } else {
+                    failures.add(repository + ": " + result.getMessage());
+                }
+            } catch (final RuntimeException ex) {
+                LOG.error("Failed to process " + repository, ex);
+                failures.add(repository + ": " + ex);
+            } finally {
+                slots.release();
+            }
+        });
+    }
+
+    /**
+     * Waits until all submitted repositories were processed. No more
+     * repositories are accepted afterwards.
+     */
+    void await() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for clones",
+                    ex);
+        }
+    }
+
+    /**
+     * Stops all threads that are still running.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the number of submitted repositories.
+     * 
+     * @return Number of repositories.
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the repositories that were processed successfully.
+     * 
+     * @return Repositories in the order they were finished.
+     */
+    List<GitRepository> getProcessed() {
+        return new ArrayList<>(processed);
+    }
+
+    /**
+     * Returns the repositories that failed.
+     * 
+     * @return Repository and reason of the failure.
+     */
+    List<String> getFailures() {
+        return new ArrayList<>(failures);
+    }
+
+}
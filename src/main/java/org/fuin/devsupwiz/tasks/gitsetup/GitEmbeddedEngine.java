@@ -0,0 +1,307 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import javax.validation.constraints.NotNull;
+
+import org.eclipse.jgit.api.CloneCommand;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.TransportConfigCallback;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.JGitInternalException;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.eclipse.jgit.transport.SshTransport;
+import org.eclipse.jgit.transport.sshd.DefaultProxyDataFactory;
+import org.eclipse.jgit.transport.sshd.JGitKeyCache;
+import org.eclipse.jgit.transport.sshd.SshdSessionFactory;
+
+/**
+ * Clones and fetches repositories inside the JVM using JGit instead of
+ * starting a "git" process for every repository. All clones and fetches use
+ * one SSH session factory, so the private keys and known hosts are only read
+ * once. The JGit window cache that holds the pack file data is enlarged for
+ * parallel clones when the first clone or fetch starts. This is a global
+ * setting of JGit, so it also applies to any other JGit user in the same
+ * JVM. Every clone still opens its own connection. Options
+ * the embedded engine does not support are handled by the native engine.
+ */
+final class GitEmbeddedEngine {
+
+    /** Upper limit in bytes for the pack file data cached by JGit. */
+    private static final long MAX_PACKED_GIT_LIMIT = 256L * 1024L * 1024L;
+
+    /** SSH sessions of all clones and fetches. */
+    private static final SshdSessionFactory SSH_SESSION_FACTORY = new SshdSessionFactory(
+            new JGitKeyCache(), new DefaultProxyDataFactory());
+
+    /** Uses the shared SSH session factory for SSH transports. */
+    private static final TransportConfigCallback TRANSPORT_CONFIG = transport -> {
+        if (transport instanceof SshTransport) {
+            ((SshTransport) transport)
+                    .setSshSessionFactory(SSH_SESSION_FACTORY);
+        }
+    };
+
+    /** Set once the window cache configuration was installed. */
+    private static final AtomicBoolean WINDOW_CACHE_INSTALLED = new AtomicBoolean();
+
+    private final int stallSeconds;
+
+    private final CancellationToken token;
+
+    /**
+     * Constructor without cancellation.
+     * 
+     * @param stallSeconds
+     *            Maximum number of seconds without network activity before
+     *            an operation is aborted or <code>0</code> to wait forever.
+     */
+    GitEmbeddedEngine(final int stallSeconds) {
+        this(stallSeconds, null);
+    }
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param stallSeconds
+     *            Maximum number of seconds without network activity before
+     *            an operation is aborted or <code>0</code> to wait forever.
+     * @param token
+     *            Aborts running operations when cancelled or
+     *            <code>null</code>.
+     */
+    GitEmbeddedEngine(final int stallSeconds, final CancellationToken token) {
+        super();
+        this.stallSeconds = stallSeconds;
+        this.token = token;
+    }
+
+    /**
+     * Determines if the embedded engine can clone the repository with the
+     * given options.
+     * 
+     * @param repository
+     *            Repository to clone.
+     * @param depth
+     *            Effective depth or <code>null</code>.
+     * @param filter
+     *            Effective partial clone filter or <code>null</code>.
+     * @param singleBranch
+     *            Effective single branch option or <code>null</code>.
+     * 
+     * @return Name of the first unsupported option or <code>null</code> if
+     *         all options are supported.
+     */
+    static String unsupportedOption(@NotNull final GitRepository repository,
+            final Integer depth, final String filter,
+            final Boolean singleBranch) {
+        if (depth != null) {
+            return "depth";
+        }
+        if (filter != null) {
+            return "filter";
+        }
+        if (Boolean.TRUE.equals(singleBranch)) {
+            return "single-branch";
+        }
+        if (repository.getBundle() != null) {
+            return "bundle";
+        }
+        if (!repository.getSparseDirs().isEmpty()) {
+            return "sparse";
+        }
+        return null;
+    }
+
+    /**
+     * Clones a repository.
+     * 
+     * @param repository
+     *            Repository to clone.
+     * @param dir
+     *            Directory to create the working tree in.
+     * @param timeout
+     *            Maximum number of seconds or <code>0</code> for no limit.
+     * @param consumer
+     *            Receives the progress.
+     */
+    void cloneRepository(@NotNull final GitRepository repository,
+            @NotNull final File dir, final int timeout,
+            @NotNull final Consumer<GitCloneProgress> consumer) {
+        installWindowCache();
+        final CloneCommand cmd = Git.cloneRepository()
+                .setURI(repository.getUrl()).setDirectory(dir)
+                .setTransportConfigCallback(TRANSPORT_CONFIG)
+                .setProgressMonitor(
+                        new Monitor(repository, consumer, timeout, token));
+        if (stallSeconds > 0) {
+            cmd.setTimeout(stallSeconds);
+        }
+        try {
+            cmd.call().close();
+        } catch (final GitAPIException | JGitInternalException ex) {
+            checkCancelled(repository);
+            throw new RuntimeException(
+                    "Failed to clone " + repository + ": " + ex.getMessage(),
+                    ex);
+        }
+    }
+
+    /**
+     * Fetches the changes of the remote "origin" into an existing clone.
+     * 
+     * @param repository
+     *            Repository to fetch.
+     * @param dir
+     *            Directory of the existing clone.
+     * @param timeout
+     *            Maximum number of seconds or <code>0</code> for no limit.
+     * @param consumer
+     *            Receives the progress.
+     */
+    void fetchRepository(@NotNull final GitRepository repository,
+            @NotNull final File dir, final int timeout,
+            @NotNull final Consumer<GitCloneProgress> consumer) {
+        installWindowCache();
+        try (final Git git = Git.open(dir)) {
+            git.fetch().setRemote("origin").setRemoveDeletedRefs(true)
+                    .setTimeout(stallSeconds)
+                    .setTransportConfigCallback(TRANSPORT_CONFIG)
+                    .setProgressMonitor(
+                            new Monitor(repository, consumer, timeout, token))
+                    .call();
+        } catch (final IOException | GitAPIException
+                | JGitInternalException ex) {
+            checkCancelled(repository);
+            throw new RuntimeException(
+                    "Failed to fetch " + repository + ": " + ex.getMessage(),
+                    ex);
+        }
+    }
+
+    /**
+     * Enlarges the JGit window cache for parallel clones. As this changes the
+     * cache of all JGit users in the JVM, it is only done once an embedded
+     * clone or fetch actually runs.
+     */
+    private static void installWindowCache() {
+        if (!WINDOW_CACHE_INSTALLED.compareAndSet(false, true)) {
+            return;
+        }
+        final WindowCacheConfig config = new WindowCacheConfig();
+        final long limit = Math.min(MAX_PACKED_GIT_LIMIT,
+                Runtime.getRuntime().maxMemory() / 8);
+        config.setPackedGitLimit(Math.max(config.getPackedGitLimit(), limit));
+        config.install();
+    }
+
+    private void checkCancelled(final GitRepository repository) {
+        if (token != null && token.isCancelled()) {
+            throw new CancellationException("Cancelled: " + repository);
+        }
+    }
+
+    /**
+     * Converts the JGit progress into {@link GitCloneProgress} events and
+     * cancels the operation once the timeout is reached or the token was
+     * cancelled.
+     */
+    private static final class Monitor implements ProgressMonitor {
+
+        private final GitRepository repository;
+
+        private final Consumer<GitCloneProgress> consumer;
+
+        private final long deadline;
+
+        private final CancellationToken token;
+
+        private String phase;
+
+        private int total;
+
+        private long current;
+
+        private int percent;
+
+        public Monitor(final GitRepository repository,
+                final Consumer<GitCloneProgress> consumer, final int timeout,
+                final CancellationToken token) {
+            super();
+            this.repository = repository;
+            this.consumer = consumer;
+            this.token = token;
+            if (timeout > 0) {
+                deadline = System.nanoTime()
+                        + TimeUnit.SECONDS.toNanos(timeout);
+            } else {
+                deadline = 0;
+            }
+        }
+
+        @Override
+        public final void start(final int totalTasks) {
+            // Not used
+        }
+
+        @Override
+        public final void beginTask(final String title, final int totalWork) {
+            phase = title;
+            total = totalWork;
+            current = 0;
+            percent = -1;
+        }
+
+        @Override
+        public final void update(final int completed) {
+            current = current + completed;
+            if (total <= 0) {
+                return;
+            }
+            final int pct = (int) Math.min(100, current * 100 / total);
+            if (pct != percent) {
+                percent = pct;
+                consumer.accept(new GitCloneProgress(repository, phase, pct,
+                        current, total, 0, 0));
+            }
+        }
+
+        @Override
+        public final void endTask() {
+            // Not used
+        }
+
+        @Override
+        public final boolean isCancelled() {
+            if (token != null && token.isCancelled()) {
+                return true;
+            }
+            return deadline != 0 && System.nanoTime() - deadline > 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
+import javax.validation.constraints.NotNull;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Reads the repositories of a manifest file one by one, so even very large
+ * manifests are never loaded into memory completely. A file ending with
+ * ".xml" may have any root element and contains "repository" elements like
+ * the ones inside a {@link GitCloneTask}. All other files contain one URL per
+ * line. Empty lines and lines starting with '#' are ignored.
+ */
+public final class GitManifestReader implements Closeable {
+
+    private static final String REPOSITORY = "repository";
+
+    private final File file;
+
+    private final InputStream in;
+
+    private final BufferedReader lineReader;
+
+    private final XMLStreamReader xmlReader;
+
+    private final Unmarshaller unmarshaller;
+
+    /**
+     * Constructor with file.
+     * 
+     * @param file
+     *            Manifest to read.
+     * 
+     * @throws IOException
+     *             Error opening the manifest.
+     */
+    public GitManifestReader(@NotNull final File file) throws IOException {
+        super();
+        this.file = file;
+        this.in = new FileInputStream(file);
+        if (file.getName().toLowerCase().endsWith(".xml")) {
+            try {
+                final XMLInputFactory factory = XMLInputFactory.newInstance();
+                factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+                factory.setProperty(
+                        XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+                        false);
+                this.xmlReader = factory.createXMLStreamReader(in);
+                this.unmarshaller = JAXBContext
+                        .newInstance(GitRepository.class).createUnmarshaller();
+            } catch (final XMLStreamException | JAXBException ex) {
+                IOUtils.closeQuietly(in);
+                throw new IOException("Failed to open manifest " + file, ex);
+            }
+            this.lineReader = null;
+        } else {
+            this.lineReader = new BufferedReader(
+                    new InputStreamReader(in, Charset.forName("utf-8")));
+            this.xmlReader = null;
+            this.unmarshaller = null;
+        }
+    }
+
+    /**
+     * Returns the manifest file.
+     * 
+     * @return File that is read.
+     */
+    public final File getFile() {
+        return file;
+    }
+
+    /**
+     * Reads the next repository.
+     * 
+     * @return Repository or <code>null</code> if the end of the manifest was
+     *         reached.
+     * 
+     * @throws IOException
+     *             Error reading the manifest.
+     */
+    public final GitRepository next() throws IOException {
+        if (lineReader == null) {
+            return nextElement();
+        }
+        return nextLine();
+    }
+
+    private GitRepository nextLine() throws IOException {
+        String line;
+        while ((line = lineReader.readLine()) != null) {
+            final String url = line.trim();
+            if (!url.isEmpty() && !url.startsWith("#")) {
+                return new GitRepository(url);
+            }
+        }
+        return null;
+    }
+
+    private GitRepository nextElement() throws IOException {
+        try {
+            while (xmlReader.hasNext()) {
+                if (xmlReader.getEventType() == XMLStreamConstants.START_ELEMENT
+                        && REPOSITORY.equals(xmlReader.getLocalName())) {
+                    // Leaves the reader after the end of the element
+                    return unmarshaller.unmarshal(xmlReader, GitRepository.class)
+                            .getValue();
+                }
+                xmlReader.next();
+            }
+            return null;
+        } catch (final XMLStreamException | JAXBException ex) {
+            throw new IOException("Failed to read manifest " + file, ex);
+        }
+    }
+
+    @Override
+    public final void close() throws IOException {
+        try {
+            if (xmlReader != null) {
+                xmlReader.close();
+            }
+        } catch (final XMLStreamException ex) {
+            throw new IOException("Failed to close manifest " + file, ex);
+        } finally {
+            in.close();
+        }
+    }
+
+}
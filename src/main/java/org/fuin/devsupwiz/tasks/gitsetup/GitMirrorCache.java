@@ -0,0 +1,413 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.fuin.devsupwiz.common.LogOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+
+/**
+ * Local cache with one bare mirror per repository URL. Clones use the mirrors
+ * as reference, so only objects that are not already in the cache are
+ * fetched from the remote. The total size of the cache is limited: Mirrors
+ * that were not used for the longest time are removed first. Every mirror is
+ * protected by a lock file, so concurrent wizard runs can share the same
+ * cache directory.
+ */
+public final class GitMirrorCache {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(GitMirrorCache.class);
+
+    /**
+     * Default maximum number of seconds without progress before creating or
+     * updating a mirror is aborted.
+     */
+    private static final int STALL_TIMEOUT_SECONDS = 60;
+
+    private static final String MIRROR_EXT = ".git";
+
+    private static final String LOCK_EXT = ".lock";
+
+    /** File locks are held per JVM, so threads need an additional lock. */
+    private static final ConcurrentMap<File, ReentrantLock> THREAD_LOCKS = new ConcurrentHashMap<>();
+
+    private final File dir;
+
+    private final long maxBytes;
+
+    private final int stallSeconds;
+
+    /**
+     * Constructor with mandatory data.
+     * 
+     * @param dir
+     *            Directory for the mirrors.
+     * @param maxBytes
+     *            Maximum number of bytes the mirrors may use on disk.
+     */
+    public GitMirrorCache(@NotNull final File dir, final long maxBytes) {
+        this(dir, maxBytes, STALL_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param dir
+     *            Directory for the mirrors.
+     * @param maxBytes
+     *            Maximum number of bytes the mirrors may use on disk.
+     * @param stallSeconds
+     *            Maximum number of seconds without progress before creating
+     *            or updating a mirror is aborted or <code>0</code> to disable
+     *            the watchdog.
+     */
+    public GitMirrorCache(@NotNull final File dir, final long maxBytes,
+            @Min(0) final int stallSeconds) {
+        super();
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.stallSeconds = stallSeconds;
+    }
+
+    /**
+     * Returns the directory for the mirrors.
+     * 
+     * @return Cache directory.
+     */
+    public final File getDir() {
+        return dir;
+    }
+
+    /**
+     * Returns the maximum size of the cache.
+     * 
+     * @return Maximum number of bytes the mirrors may use on disk.
+     */
+    public final long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the mirror directory for a repository URL.
+     * 
+     * @param url
+     *            Repository URL.
+     * 
+     * @return Directory of the bare mirror (may not exist).
+     */
+    public final File getMirrorDir(@NotEmpty final String url) {
+        return new File(dir, key(url) + MIRROR_EXT);
+    }
+
+    /**
+     * Creates or updates the mirror for a repository URL and locks it. The
+     * mirror can be used as reference until the returned lock is closed.
+     * 
+     * @param url
+     *            Repository URL.
+     * 
+     * @return Lock for the up-to-date mirror.
+     * 
+     * @throws IOException
+     *             Creating or updating the mirror failed.
+     */
+    public final Mirror acquire(@NotEmpty final String url) throws IOException {
+        return acquire(url, null);
+    }
+
+    /**
+     * Creates or updates the mirror for a repository URL and locks it. The
+     * git command is killed if the token is cancelled.
+     * 
+     * @param url
+     *            Repository URL.
+     * @param token
+     *            Aborts creating or updating the mirror when cancelled or
+     *            <code>null</code>.
+     * 
+     * @return Lock for the up-to-date mirror.
+     * 
+     * @throws IOException
+     *             Creating or updating the mirror failed.
+     * @throws CancellationException
+     *             The token was cancelled.
+     * @throws RuntimeException
+     *             Git could not be started or was aborted by the watchdog.
+     */
+    public final Mirror acquire(@NotEmpty final String url,
+            final CancellationToken token) throws IOException {
+        final File mirrorDir = getMirrorDir(url);
+        final Mirror mirror = Mirror.lock(mirrorDir);
+        try {
+            final int result;
+            if (new File(mirrorDir, "HEAD").exists()) {
+                LOG.info("Updating mirror {}", mirrorDir);
+                result = ProcessCommand.execute(
+                        Arrays.asList("git", "fetch", "--progress", "--prune",
+                                "origin"),
+                        mirrorDir, 0, stallSeconds,
+                        createProgressStream(url), token);
+            } else {
+                LOG.info("Creating mirror {}", mirrorDir);
+                FileUtils.deleteDirectory(mirrorDir);
+                result = ProcessCommand.execute(
+                        Arrays.asList("git", "clone", "--mirror", "--progress",
+                                "--", url, mirrorDir.toString()),
+                        dir, 0, stallSeconds,
+                        createProgressStream(url), token);
+            }
+            if (result != 0) {
+                throw new IOException(
+                        "Failed to update mirror " + mirrorDir + ": " + result);
+            }
+            return mirror;
+        } catch (final IOException | RuntimeException ex) {
+            mirror.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Removes the least recently used mirrors until the cache is no longer
+     * larger than the configured maximum. Mirrors that are currently locked
+     * are skipped.
+     */
+    public final void evict() {
+        final File[] dirs = dir.listFiles(
+                file -> file.isDirectory() && file.getName().endsWith(MIRROR_EXT));
+        if (dirs == null) {
+            return;
+        }
+        final List<Entry> entries = new ArrayList<>();
+        long total = 0;
+        for (final File mirrorDir : dirs) {
+            final Entry entry = new Entry(mirrorDir);
+            entries.add(entry);
+            total = total + entry.size;
+        }
+        entries.sort(Comparator.comparingLong(entry -> entry.lastUsed));
+        for (final Entry entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            final Mirror mirror = Mirror.tryLock(entry.dir);
+            if (mirror == null) {
+                LOG.debug("Mirror in use, not evicted: {}", entry.dir);
+                continue;
+            }
+            try {
+                FileUtils.deleteDirectory(entry.dir);
+                total = total - entry.size;
+                LOG.info("Evicted mirror {} ({} bytes)", entry.dir, entry.size);
+            } catch (final IOException ex) {
+                LOG.warn("Failed to evict mirror: " + entry.dir, ex);
+            } finally {
+                mirror.close();
+            }
+        }
+    }
+
+    /**
+     * Creates a file system friendly unique key for a repository URL.
+     * 
+     * @param url
+     *            Repository URL.
+     * 
+     * @return Repository name followed by a hash of the URL.
+     */
+    static String key(@NotEmpty final String url) {
+        try {
+            final MessageDigest md = MessageDigest.getInstance("SHA-1");
+            final byte[] hash = md.digest(url.getBytes(Charset.forName("utf-8")));
+            final StringBuilder sb = new StringBuilder(
+                    GitCloneTask.getRepositoryName(url)
+                            .replaceAll("[^A-Za-z0-9._\\-]", "_"));
+            sb.append('-');
+            for (int i = 0; i < 6; i++) {
+                sb.append(String.format("%02x", hash[i]));
+            }
+            return sb.toString();
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Creates a stream that drops the progress lines git writes for mirrors
+     * and logs everything else.
+     */
+    private static OutputStream createProgressStream(final String url) {
+        return new GitProgressOutputStream(new GitRepository(url),
+                progress -> {
+                }, new LogOutputStream(Level.ERROR));
+    }
+
+    private static File lockFile(final File mirrorDir) {
+        return new File(mirrorDir.getParentFile(),
+                mirrorDir.getName() + LOCK_EXT);
+    }
+
+    /**
+     * Exclusive lock on a mirror. The lock file's modification time is the
+     * last usage time of the mirror.
+     */
+    public static final class Mirror implements AutoCloseable {
+
+        private final File dir;
+
+        private final ReentrantLock threadLock;
+
+        private final FileChannel channel;
+
+        private final FileLock fileLock;
+
+        private Mirror(final File dir, final ReentrantLock threadLock,
+                final FileChannel channel, final FileLock fileLock) {
+            super();
+            this.dir = dir;
+            this.threadLock = threadLock;
+            this.channel = channel;
+            this.fileLock = fileLock;
+        }
+
+        /**
+         * Returns the directory of the bare mirror.
+         * 
+         * @return Mirror directory.
+         */
+        public final File getDir() {
+            return dir;
+        }
+
+        @Override
+        public final void close() {
+            try {
+                fileLock.release();
+                channel.close();
+            } catch (final IOException ex) {
+                LOG.warn("Failed to release lock: " + lockFile(dir), ex);
+            } finally {
+                threadLock.unlock();
+            }
+        }
+
+        private static ReentrantLock threadLock(final File mirrorDir) {
+            return THREAD_LOCKS.computeIfAbsent(mirrorDir.getAbsoluteFile(),
+                    key -> new ReentrantLock());
+        }
+
+        private static FileChannel open(final File mirrorDir)
+                throws IOException {
+            final File lockFile = lockFile(mirrorDir);
+            FileUtils.forceMkdir(lockFile.getParentFile());
+            return FileChannel.open(lockFile.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        }
+
+        static Mirror lock(final File mirrorDir) throws IOException {
+            final ReentrantLock threadLock = threadLock(mirrorDir);
+            threadLock.lock();
+            try {
+                final FileChannel channel = open(mirrorDir);
+                try {
+                    final FileLock fileLock = channel.lock();
+                    Files.setLastModifiedTime(lockFile(mirrorDir).toPath(),
+                            FileTime.fromMillis(System.currentTimeMillis()));
+                    return new Mirror(mirrorDir, threadLock, channel, fileLock);
+                } catch (final IOException | RuntimeException ex) {
+                    channel.close();
+                    throw ex;
+                }
+            } catch (final IOException | RuntimeException ex) {
+                threadLock.unlock();
+                throw ex;
+            }
+        }
+
+        static Mirror tryLock(final File mirrorDir) {
+            final ReentrantLock threadLock = threadLock(mirrorDir);
+            if (threadLock.isHeldByCurrentThread() || !threadLock.tryLock()) {
+                return null;
+            }
+            FileChannel channel = null;
+            try {
+                channel = open(mirrorDir);
+                final FileLock fileLock = channel.tryLock();
+                if (fileLock != null) {
+                    return new Mirror(mirrorDir, threadLock, channel, fileLock);
+                }
+            } catch (final IOException | RuntimeException ex) {
+                LOG.warn("Failed to lock mirror: " + mirrorDir, ex);
+            }
+            IOUtils.closeQuietly(channel);
+            threadLock.unlock();
+            return null;
+        }
+
+    }
+
+    /**
+     * Size and last usage of a mirror.
+     */
+    private static final class Entry {
+
+        private final File dir;
+
+        private final long size;
+
+        private final long lastUsed;
+
+        Entry(final File dir) {
+            this.dir = dir;
+            this.size = FileUtils.sizeOfDirectory(dir);
+            final File lockFile = lockFile(dir);
+            this.lastUsed = lockFile.exists() ? lockFile.lastModified()
+                    : dir.lastModified();
+        }
+
+    }
+
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Parses the "--progress" output git writes to standard error. Progress lines
+ * that are only terminated by a carriage return are converted into
+ * {@link GitCloneProgress} events. Only lines terminated by a line feed are
+ * passed on to the delegate output stream.
+ */
+public final class GitProgressOutputStream extends OutputStream {
+
+    private static final Pattern PROGRESS = Pattern.compile(
+            "^(?:remote: )?([A-Za-z][A-Za-z ]*?):\\s+(\\d+)% \\((\\d+)/(\\d+)\\)"
+                    + "(?:, ([\\d.]+) (bytes|KiB|MiB|GiB|TiB)"
+                    + "(?: \\| ([\\d.]+) (bytes|KiB|MiB|GiB|TiB)/s)?)?.*");
+
+    private final GitRepository repository;
+
+    private final Consumer<GitCloneProgress> consumer;
+
+    private final OutputStream delegate;
+
+    private final ByteArrayOutputStream line;
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param repository
+     *            Repository the output belongs to.
+     * @param consumer
+     *            Receives the progress events.
+     * @param delegate
+     *            Receives all lines terminated by a line feed.
+     */
+    public GitProgressOutputStream(@NotNull final GitRepository repository,
+            @NotNull final Consumer<GitCloneProgress> consumer,
+            @NotNull final OutputStream delegate) {
+        super();
+        this.repository = repository;
+        this.consumer = consumer;
+        this.delegate = delegate;
+        this.line = new ByteArrayOutputStream(128);
+    }
+
+    @Override
+    public final synchronized void write(final int b) throws IOException {
+        if (b == '\r' || b == '\n') {
+            final byte[] bytes = line.toByteArray();
+            line.reset();
+            if (bytes.length > 0) {
+                parse(new String(bytes, Charset.defaultCharset()));
+                if (b == '\n') {
+                    delegate.write(bytes);
+                    delegate.write('\n');
+                }
+            }
+        } else {
+            line.write(b);
+        }
+    }
+
+    @Override
+    public final synchronized void flush() throws IOException {
+        delegate.flush();
+    }
+
+    @Override
+    public final synchronized void close() throws IOException {
+        if (line.size() > 0) {
+            write('\n');
+        }
+        delegate.close();
+    }
+
+    private void parse(final String str) {
+        final GitCloneProgress progress = parse(repository, str);
+        if (progress != null) {
+            consumer.accept(progress);
+        }
+    }
+
+    /**
+     * Parses a single line of git's progress output.
+     * 
+     * @param repository
+     *            Repository the line belongs to.
+     * @param str
+     *            Line like "Receiving objects: 45% (450/1000), 1.20 MiB |
+     *            2.00 MiB/s".
+     * 
+     * @return Progress or <code>null</code> if the line is not a progress
+     *         line.
+     */
+    static GitCloneProgress parse(@NotNull final GitRepository repository,
+            @NotNull final String str) {
+        final Matcher matcher = PROGRESS.matcher(str.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new GitCloneProgress(repository, matcher.group(1),
+                Integer.parseInt(matcher.group(2)),
+                Long.parseLong(matcher.group(3)),
+                Long.parseLong(matcher.group(4)),
+                toBytes(matcher.group(5), matcher.group(6)),
+                toBytes(matcher.group(7), matcher.group(8)));
+    }
+
+    private static long toBytes(final String value, final String unit) {
+        if (value == null) {
+            return 0;
+        }
+        final double number = Double.parseDouble(value);
+        final int exp;
+        switch (unit) {
+        case "KiB":
+            exp = 1;
+            break;
+        case "MiB":
+            exp = 2;
+            break;
+        case "GiB":
+            exp = 3;
+            break;
+        case "TiB":
+            exp = 4;
+            break;
+        default:
+            exp = 0;
+        }
+        return (long) (number * Math.pow(1024, exp));
+    }
+
+}
@@ -0,0 +1,346 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Pattern;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElementRef;
+import javax.xml.bind.annotation.XmlMixed;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Git repository to clone. Clone options that are not set on the repository
+ * are taken from the surrounding {@link GitCloneTask}. The URL is the text
+ * content of the element, which may additionally contain a
+ * {@link GitSparseCheckout} element.
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+public final class GitRepository {
+
+    /** Size with an optional unit like "800K", "500M" or "2G". */
+    static final String SIZE_PATTERN = "[0-9]+[KkMmGgTt]?";
+
+    @XmlMixed
+    @XmlElementRef(type = GitSparseCheckout.class)
+    private List<Object> content;
+
+    @Min(1)
+    @XmlAttribute(name = "depth")
+    private Integer depth;
+
+    @Pattern(regexp = GitCloneTask.FILTER_PATTERN)
+    @XmlAttribute(name = "filter")
+    private String filter;
+
+    @XmlAttribute(name = "single-branch")
+    private Boolean singleBranch;
+
+    @XmlAttribute(name = "priority")
+    private Integer priority;
+
+    @Pattern(regexp = SIZE_PATTERN)
+    @XmlAttribute(name = "size-hint")
+    private String sizeHint;
+
+    @Min(1)
+    @XmlAttribute(name = "timeout")
+    private Integer timeout;
+
+    @XmlAttribute(name = "bundle")
+    private String bundle;
+
+    /**
+     * Default constructor for JAXB.
+     */
+    protected GitRepository() {
+        super();
+    }
+
+    /**
+     * Constructor with URL.
+     * 
+     * @param url
+     *            Repository URL like
+     *            "git@bitbucket.org:my_account/my-project.git".
+     */
+    public GitRepository(@NotEmpty final String url) {
+        this(url, null, null, null);
+    }
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param url
+     *            Repository URL like
+     *            "git@bitbucket.org:my_account/my-project.git".
+     * @param depth
+     *            Number of commits to fetch or <code>null</code> to use the
+     *            task's setting.
+     * @param filter
+     *            Partial clone filter like "blob:none" or <code>null</code>
+     *            to use the task's setting.
+     * @param singleBranch
+     *            TRUE to fetch only the history of a single branch or
+     *            <code>null</code> to use the task's setting.
+     */
+    public GitRepository(@NotEmpty final String url, final Integer depth,
+            final String filter, final Boolean singleBranch) {
+        super();
+        this.content = new ArrayList<>();
+        this.content.add(url);
+        this.depth = depth;
+        this.filter = filter;
+        this.singleBranch = singleBranch;
+    }
+
+    /**
+     * Returns the repository URL.
+     * 
+     * @return URL to clone.
+     */
+    @NotEmpty
+    public final String getUrl() {
+        if (content == null) {
+            return null;
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (final Object obj : content) {
+            if (obj instanceof String) {
+                sb.append(obj);
+            }
+        }
+        return StringUtils.trimToNull(sb.toString());
+    }
+
+    /**
+     * Returns the directories to check out in cone mode.
+     * 
+     * @return Directories or an empty list if the whole working tree is
+     *         checked out.
+     */
+    public final List<String> getSparseDirs() {
+        if (content != null) {
+            for (final Object obj : content) {
+                if (obj instanceof GitSparseCheckout) {
+                    return ((GitSparseCheckout) obj).getDirs();
+                }
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Sets the directories to check out in cone mode.
+     * 
+     * @param dirs
+     *            Directories or <code>null</code> (or an empty list) to
+     *            check out the whole working tree.
+     */
+    public final void setSparseDirs(final List<String> dirs) {
+        if (content == null) {
+            content = new ArrayList<>();
+        }
+        final Iterator<Object> it = content.iterator();
+        while (it.hasNext()) {
+            if (it.next() instanceof GitSparseCheckout) {
+                it.remove();
+            }
+        }
+        if (dirs != null && !dirs.isEmpty()) {
+            content.add(new GitSparseCheckout(dirs));
+        }
+    }
+
+    /**
+     * Returns the name of the directory git creates for the repository.
+     * 
+     * @return Last path segment of the URL without ".git".
+     */
+    public final String getName() {
+        return GitCloneTask.getRepositoryName(getUrl());
+    }
+
+    /**
+     * Returns the depth of a shallow clone.
+     * 
+     * @return Number of commits to fetch or <code>null</code> if not
+     *         defined.
+     */
+    public final Integer getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the partial clone filter.
+     * 
+     * @return Filter like "blob:none" or "tree:0" or <code>null</code> if not
+     *         defined.
+     */
+    public final String getFilter() {
+        return filter;
+    }
+
+    /**
+     * Returns if only the history of a single branch is fetched.
+     * 
+     * @return TRUE for a single branch clone, FALSE for all branches or
+     *         <code>null</code> if not defined.
+     */
+    public final Boolean getSingleBranch() {
+        return singleBranch;
+    }
+
+    /**
+     * Returns the priority. Repositories with a higher priority are cloned
+     * first.
+     * 
+     * @return Priority. In case the value is not set this defaults to 0.
+     */
+    public final int getPriority() {
+        if (priority == null) {
+            return 0;
+        }
+        return priority;
+    }
+
+    /**
+     * Sets the priority.
+     * 
+     * @param priority
+     *            Higher values are cloned first or <code>null</code> for the
+     *            default.
+     */
+    public final void setPriority(final Integer priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * Returns the expected size of the repository.
+     * 
+     * @return Size with an optional unit like "500M" or <code>null</code> if
+     *         not defined.
+     */
+    public final String getSizeHint() {
+        return sizeHint;
+    }
+
+    /**
+     * Sets the expected size of the repository.
+     * 
+     * @param sizeHint
+     *            Size with an optional unit like "500M" or <code>null</code>.
+     */
+    public final void setSizeHint(
+            @Pattern(regexp = SIZE_PATTERN) final String sizeHint) {
+        this.sizeHint = sizeHint;
+    }
+
+    /**
+     * Returns the expected size of the repository in bytes.
+     * 
+     * @return Size or <code>null</code> if not defined.
+     */
+    public final Long getSizeHintBytes() {
+        if (sizeHint == null) {
+            return null;
+        }
+        return parseSize(sizeHint);
+    }
+
+    /**
+     * Returns the maximum duration of a single clone or fetch. Without a
+     * timeout the limit is derived from previous runs.
+     * 
+     * @return Seconds or <code>null</code> if not defined.
+     */
+    public final Integer getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the maximum duration of a single clone or fetch.
+     * 
+     * @param timeout
+     *            Seconds or <code>null</code>.
+     */
+    public final void setTimeout(@Min(1) final Integer timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Returns the local bundle file used to seed the clone. Only the commits
+     * missing in the bundle are fetched from the URL afterwards.
+     * 
+     * @return Bundle file name or <code>null</code> if not defined.
+     */
+    public final String getBundle() {
+        return bundle;
+    }
+
+    /**
+     * Sets the local bundle file used to seed the clone.
+     * 
+     * @param bundle
+     *            Bundle file name or <code>null</code>.
+     */
+    public final void setBundle(final String bundle) {
+        this.bundle = bundle;
+    }
+
+    /**
+     * Converts a size with an optional unit into bytes.
+     * 
+     * @param size
+     *            Size like "800K", "500M", "2G" or "1024".
+     * 
+     * @return Number of bytes.
+     */
+    static long parseSize(@Pattern(regexp = SIZE_PATTERN) final String size) {
+        final String str = size.trim().toUpperCase();
+        final char unit = str.charAt(str.length() - 1);
+        final String number = str.substring(0, str.length() - 1);
+        switch (unit) {
+        case 'K':
+            return Long.parseLong(number) * 1024L;
+        case 'M':
+            return Long.parseLong(number) * 1024L * 1024L;
+        case 'G':
+            return Long.parseLong(number) * 1024L * 1024L * 1024L;
+        case 'T':
+            return Long.parseLong(number) * 1024L * 1024L * 1024L * 1024L;
+        default:
+            return Long.parseLong(str);
+        }
+    }
+
+    @Override
+    public final String toString() {
+        return getUrl();
+    }
+
+}
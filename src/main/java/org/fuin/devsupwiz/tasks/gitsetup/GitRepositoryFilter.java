@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.validation.constraints.NotEmpty;
+
+/**
+ * Selects repositories by their URL. A pattern starting with "regex:" is a
+ * regular expression that has to be found somewhere in the URL. All other
+ * patterns are globs that have to match the whole URL, where '*' matches any
+ * number and '?' exactly one character. A repository is selected if it
+ * matches at least one include pattern (Or there are none) and no exclude
+ * pattern.
+ */
+public final class GitRepositoryFilter {
+
+    private static final String REGEX_PREFIX = "regex:";
+
+    private final List<Pattern> includes;
+
+    private final List<Pattern> excludes;
+
+    /**
+     * Constructor with comma separated patterns.
+     * 
+     * @param includes
+     *            Patterns of repositories to select or <code>null</code> to
+     *            select all.
+     * @param excludes
+     *            Patterns of repositories to skip or <code>null</code> to
+     *            skip none.
+     */
+    public GitRepositoryFilter(final String includes, final String excludes) {
+        super();
+        this.includes = compile(includes);
+        this.excludes = compile(excludes);
+    }
+
+    /**
+     * Determines if a repository is selected.
+     * 
+     * @param url
+     *            Repository URL.
+     * 
+     * @return TRUE if the repository is selected.
+     */
+    public final boolean matches(@NotEmpty final String url) {
+        if (!includes.isEmpty() && !find(includes, url)) {
+            return false;
+        }
+        return !find(excludes, url);
+    }
+
+    private static boolean find(final List<Pattern> patterns,
+            final String url) {
+        for (final Pattern pattern : patterns) {
+            if (pattern.matcher(url).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Pattern> compile(final String patterns) {
+        final List<Pattern> list = new ArrayList<>();
+        if (patterns == null) {
+            return list;
+        }
+        for (final String str : patterns.split(",")) {
+            final String pattern = str.trim();
+            if (pattern.startsWith(REGEX_PREFIX)) {
+                list.add(Pattern.compile(pattern.substring(REGEX_PREFIX.length())));
+            } else if (!pattern.isEmpty()) {
+                list.add(Pattern.compile(globToRegex(pattern)));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Converts a glob into an anchored regular expression.
+     * 
+     * @param glob
+     *            Glob like "*&#47;team-a/*".
+     * 
+     * @return Regular expression.
+     */
+    static String globToRegex(@NotEmpty final String glob) {
+        final StringBuilder sb = new StringBuilder("^");
+        final StringBuilder literal = new StringBuilder();
+        for (final char ch : glob.toCharArray()) {
+            if (ch == '*' || ch == '?') {
+                if (literal.length() > 0) {
+                    sb.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                sb.append(ch == '*' ? ".*" : ".");
+            } else {
+                literal.append(ch);
+            }
+        }
+        if (literal.length() > 0) {
+            sb.append(Pattern.quote(literal.toString()));
+        }
+        return sb.append('$').toString();
+    }
+
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Directories of a repository that are checked out in cone mode. Files in
+ * the root directory are always checked out.
+ */
+@XmlRootElement(name = "sparse")
+@XmlAccessorType(XmlAccessType.FIELD)
+public final class GitSparseCheckout {
+
+    /** One or more names separated by a slash. "." and ".." are no names. */
+    static final String DIR_PATTERN = "(?!\\.\\.?(/|$))[A-Za-z0-9._\\-]+"
+            + "(/(?!\\.\\.?(/|$))[A-Za-z0-9._\\-]+)*";
+
+    @NotEmpty
+    @XmlElement(name = "dir")
+    private List<String> dirs;
+
+    /**
+     * Default constructor for JAXB.
+     */
+    protected GitSparseCheckout() {
+        super();
+    }
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param dirs
+     *            Directories relative to the repository root like
+     *            "services/billing".
+     */
+    public GitSparseCheckout(@NotNull final List<String> dirs) {
+        super();
+        this.dirs = new ArrayList<>(dirs);
+    }
+
+    /**
+     * Returns the directories to check out.
+     * 
+     * @return Unmodifiable list of directories.
+     */
+    public final List<String> getDirs() {
+        if (dirs == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(dirs);
+    }
+
+    /**
+     * Determines if a directory is relative to the repository root, stays
+     * inside the repository and contains only letters, digits, '.', '_' and
+     * '-'. Directories from a manifest are not validated when they are read,
+     * so they must be checked before they are passed to git.
+     * 
+     * @param dir
+     *            Directory to check.
+     * 
+     * @return TRUE if the directory can be used for a sparse checkout.
+     */
+    static boolean isValidDir(final String dir) {
+        return dir != null && dir.matches(DIR_PATTERN);
+    }
+
+}
@@ -0,0 +1,259 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.fuin.devsupwiz.common.DevSupWizUtils.MDC_TASK_KEY;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+import org.fuin.devsupwiz.common.LogOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.slf4j.event.Level;
+
+/**
+ * Resolves the plugins and dependencies of Maven projects into the local
+ * repository, so the first build or IDE import does not have to download
+ * them. Several projects are resolved in parallel. As they share the same
+ * local repository, Maven is told to use file locks for the artifacts, so the
+ * same artifact is never downloaded by two processes at the same time. This
+ * also makes concurrent runs of the wizard or an IDE safe. Maven versions
+ * before 3.9 ignore the locking properties, so the projects are resolved one
+ * after the other with them.
+ */
+public final class MavenWarmUp {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(MavenWarmUp.class);
+
+    /** Goal that downloads everything required for an offline build. */
+    static final String GOAL = "dependency:go-offline";
+
+    /** Maximum number of seconds a single project may take. */
+    static final int TIMEOUT_SECONDS = 3600;
+
+    /** Maximum number of seconds without any output from Maven. */
+    static final int STALL_TIMEOUT_SECONDS = 600;
+
+    /** Maximum number of seconds to wait for "mvn -v". */
+    private static final int VERSION_TIMEOUT_SECONDS = 60;
+
+    /** Version in the output of "mvn -v". */
+    private static final Pattern VERSION = Pattern
+            .compile("Apache Maven (\\d+)\\.(\\d+)");
+
+    /** Named locks based on files in the local repository. */
+    static final String[] LOCKING = new String[] {
+            "-Daether.syncContext.named.factory=file-lock",
+            "-Daether.syncContext.named.nameMapper=file-gav" };
+
+    private final String executable;
+
+    private final File settings;
+
+    private final File localRepository;
+
+    private final int threads;
+
+    private final CancellationToken token;
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param executable
+     *            Maven command like "mvn" or "/opt/maven/bin/mvn".
+     * @param settings
+     *            Settings file (For example with a mirror) or
+     *            <code>null</code> for the default.
+     * @param localRepository
+     *            Local repository or <code>null</code> for the default
+     *            "~/.m2/repository".
+     * @param threads
+     *            Maximum number of projects resolved in parallel.
+     * @param token
+     *            Stops the warm-up when cancelled or <code>null</code>.
+     */
+    public MavenWarmUp(@NotEmpty final String executable, final File settings,
+            final File localRepository, @Min(1) final int threads,
+            final CancellationToken token) {
+        super();
+        this.executable = executable;
+        this.settings = settings;
+        this.localRepository = localRepository;
+        this.threads = threads;
+        this.token = token;
+    }
+
+    /**
+     * Returns the command executed in every project directory.
+     * 
+     * @return Maven command and arguments.
+     */
+    final List<String> createCommand() {
+        final List<String> cmd = new ArrayList<>();
+        cmd.add(executable);
+        cmd.add("-B");
+        if (settings != null) {
+            cmd.add("-s");
+            cmd.add(settings.toString());
+        }
+        if (localRepository != null) {
+            cmd.add("-Dmaven.repo.local=" + localRepository);
+        }
+        cmd.addAll(Arrays.asList(LOCKING));
+        cmd.add(GOAL);
+        return cmd;
+    }
+
+    /**
+     * Resolves the dependencies of all directories that contain a "pom.xml".
+     * Other directories are skipped. A failing project is only logged, as the
+     * build will simply download the missing artifacts later.
+     * 
+     * @param dirs
+     *            Directories of the cloned repositories.
+     * 
+     * @return Project directories that failed.
+     */
+    public final List<File> run(@NotNull final Collection<File> dirs) {
+        final List<File> projects = new ArrayList<>();
+        for (final File dir : dirs) {
+            if (new File(dir, "pom.xml").isFile()) {
+                projects.add(dir);
+            }
+        }
+        if (projects.isEmpty()) {
+            return projects;
+        }
+        int count = Math.min(threads, projects.size());
+        if (count > 1 && !supportsLocking(queryVersion(projects.get(0)))) {
+            LOG.warn("Maven before 3.9 does not lock the local repository - "
+                    + "Resolving the projects one after the other");
+            count = 1;
+        }
+        LOG.info("Resolving dependencies of {} Maven projects using {} "
+                + "parallel workers", projects.size(), count);
+        final List<String> command = createCommand();
+        final Queue<File> failures = new ConcurrentLinkedQueue<>();
+        final String task = MDC.get(MDC_TASK_KEY);
+        final AtomicInteger number = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(count,
+                runnable -> {
+                    final Thread thread = new Thread(runnable,
+                            "maven-warm-up-" + number.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            for (final File dir : projects) {
+                executor.execute(() -> {
+                    if (token != null && token.isCancelled()) {
+                        return;
+                    }
+                    if (task != null) {
+                        MDC.put(MDC_TASK_KEY,
+                                task + "/" + dir.getName());
+                    }
+                    try {
+                        final int result = ProcessCommand.execute(command, dir,
+                                TIMEOUT_SECONDS, STALL_TIMEOUT_SECONDS,
+                                new LogOutputStream(Level.ERROR), token);
+                        if (result != 0) {
+                            LOG.warn("Warm-up of {} failed with exit code {}",
+                                    dir, result);
+                            failures.add(dir);
+                        }
+                    } catch (final RuntimeException ex) {
+                        LOG.warn("Warm-up of {} failed: {}", dir,
+                                ex.getMessage());
+                        failures.add(dir);
+                    } finally {
+                        MDC.remove(MDC_TASK_KEY);
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted while resolving dependencies");
+        } finally {
+            executor.shutdownNow();
+        }
+        return new ArrayList<>(failures);
+    }
+
+    /**
+     * Returns what "mvn -v" prints.
+     * 
+     * @param dir
+     *            Directory to execute Maven in.
+     * 
+     * @return Version information or <code>null</code> if Maven failed.
+     */
+    private String queryVersion(final File dir) {
+        try {
+            return ProcessCommand.query(Arrays.asList(executable, "-B", "-v"),
+                    dir, VERSION_TIMEOUT_SECONDS);
+        } catch (final RuntimeException ex) {
+            LOG.warn("Failed to determine the Maven version: {}",
+                    ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Determines if a Maven version supports the named file locks that make
+     * parallel runs on the same local repository safe.
+     * 
+     * @param version
+     *            Output of "mvn -v" or <code>null</code> if unknown.
+     * 
+     * @return TRUE if the version is 3.9 or later.
+     */
+    static boolean supportsLocking(final String version) {
+        if (version == null) {
+            return false;
+        }
+        final Matcher matcher = VERSION.matcher(version);
+        if (!matcher.find()) {
+            return false;
+        }
+        final int major = Integer.parseInt(matcher.group(1));
+        final int minor = Integer.parseInt(matcher.group(2));
+        return major > 3 || (major == 3 && minor >= 9);
+    }
+
+}
@@ -0,0 +1,302 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+import org.apache.commons.io.IOUtils;
+import org.fuin.devsupwiz.common.LogOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+
+/**
+ * Executes external commands like git or Maven and logs their output. The
+ * arguments are passed to the process unchanged and are never interpreted by
+ * a shell, so paths and names from the configuration may contain spaces or
+ * other special characters. Besides an optional hard timeout a command can
+ * be guarded by a watchdog that aborts it as soon as it did not write
+ * anything for a given number of seconds. As git and Maven report the
+ * progress of long running operations regularly, this only kills commands
+ * that are really stuck.
+ */
+final class ProcessCommand {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(ProcessCommand.class);
+
+    /** Milliseconds between two checks of a running command. */
+    private static final long POLL_MILLIS = 200;
+
+    /** Milliseconds to wait for a process to terminate after it was killed. */
+    private static final long KILL_WAIT_MILLIS = 5000;
+
+    /**
+     * Private utility class constructor.
+     */
+    private ProcessCommand() {
+        throw new UnsupportedOperationException(
+                "Cannot create an instance of a utility class");
+    }
+
+    /**
+     * Executes a command and waits for it to finish.
+     * 
+     * @param command
+     *            Command and arguments like [git, fetch].
+     * @param workingDir
+     *            Directory to execute the command in.
+     * @param timeoutSeconds
+     *            Maximum number of seconds to wait for the command.
+     * 
+     * @return Exit code of the command.
+     */
+    static int execute(@NotEmpty final List<String> command,
+            @NotNull final File workingDir, final int timeoutSeconds) {
+        return execute(command, workingDir, timeoutSeconds, null);
+    }
+
+    /**
+     * Executes a command that can be cancelled and waits for it to finish.
+     * 
+     * @param command
+     *            Command and arguments like [git, merge, --ff-only].
+     * @param workingDir
+     *            Directory to execute the command in.
+     * @param timeoutSeconds
+     *            Maximum number of seconds to wait for the command or
+     *            <code>0</code> to wait without limit.
+     * @param token
+     *            Kills the command when cancelled or <code>null</code>.
+     * 
+     * @return Exit code of the command.
+     */
+    static int execute(@NotEmpty final List<String> command,
+            @NotNull final File workingDir, final int timeoutSeconds,
+            final CancellationToken token) {
+        return run(command, workingDir, timeoutSeconds, 0,
+                new LogOutputStream(Level.INFO),
+                new LogOutputStream(Level.ERROR), token);
+    }
+
+    /**
+     * Executes a command with a custom handler for standard error and waits
+     * for it to finish.
+     * 
+     * @param command
+     *            Command and arguments like [git, clone, --progress, URL].
+     * @param workingDir
+     *            Directory to execute the command in.
+     * @param timeoutSeconds
+     *            Maximum number of seconds to wait for the command or
+     *            <code>0</code> to wait without limit.
+     * @param stallSeconds
+     *            Maximum number of seconds without any output before the
+     *            command is aborted or <code>0</code> to disable the watchdog.
+     * @param err
+     *            Receives standard error (Where git writes its progress).
+     * 
+     * @return Exit code of the command.
+     */
+    static int execute(@NotEmpty final List<String> command,
+            @NotNull final File workingDir, final int timeoutSeconds,
+            final int stallSeconds, @NotNull final OutputStream err) {
+        return execute(command, workingDir, timeoutSeconds, stallSeconds, err,
+                null);
+    }
+
+    /**
+     * Executes a command that can be cancelled with a custom handler for
+     * standard error and waits for it to finish.
+     * 
+     * @param command
+     *            Command and arguments like [git, clone, --progress, URL].
+     * @param workingDir
+     *            Directory to execute the command in.
+     * @param timeoutSeconds
+     *            Maximum number of seconds to wait for the command or
+     *            <code>0</code> to wait without limit.
+     * @param stallSeconds
+     *            Maximum number of seconds without any output before the
+     *            command is aborted or <code>0</code> to disable the watchdog.
+     * @param err
+     *            Receives standard error (Where git writes its progress).
+     * @param token
+     *            Kills the command when cancelled or <code>null</code>.
+     * 
+     * @return Exit code of the command.
+     */
+    static int execute(@NotEmpty final List<String> command,
+            @NotNull final File workingDir, final int timeoutSeconds,
+            final int stallSeconds, @NotNull final OutputStream err,
+            final CancellationToken token) {
+        return run(command, workingDir, timeoutSeconds, stallSeconds,
+                new LogOutputStream(Level.INFO), err, token);
+    }
+
+    /**
+     * Executes a command with custom handlers for standard output and standard
+     * error and waits for it to finish.
+     * 
+     * @param command
+     *            Command and arguments like [ssh-keyscan, HOST].
+     * @param workingDir
+     *            Directory to execute the command in.
+     * @param timeoutSeconds
+     *            Maximum number of seconds to wait for the command or
+     *            <code>0</code> to wait without limit.
+     * @param out
+     *            Receives standard output.
+     * @param err
+     *            Receives standard error.
+     * 
+     * @return Exit code of the command.
+     */
+    static int execute(@NotEmpty final List<String> command,
+            @NotNull final File workingDir, final int timeoutSeconds,
+            @NotNull final OutputStream out, @NotNull final OutputStream err) {
+        return run(command, workingDir, timeoutSeconds, 0, out, err, null);
+    }
+
+    /**
+     * Executes a command and returns what it printed to standard output.
+     * 
+     * @param command
+     *            Command and arguments like [git, config, --get,
+     *            remote.origin.url].
+     * @param workingDir
+     *            Directory to execute the command in.
+     * @param timeoutSeconds
+     *            Maximum number of seconds to wait for the command.
+     * 
+     * @return Trimmed output or <code>null</code> if the command failed.
+     */
+    static String query(@NotEmpty final List<String> command,
+            @NotNull final File workingDir, final int timeoutSeconds) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (run(command, workingDir, timeoutSeconds, 0, out,
+                new LogOutputStream(Level.ERROR), null) != 0) {
+            return null;
+        }
+        return new String(out.toByteArray(), Charset.defaultCharset()).trim();
+    }
+
+    private static int run(final List<String> command, final File workingDir,
+            final int timeoutSeconds, final int stallSeconds,
+            final OutputStream out, final OutputStream err,
+            final CancellationToken token) {
+
+        final String line = String.join(" ", command);
+        if (token != null && token.isCancelled()) {
+            throw new CancellationException("Cancelled: " + line);
+        }
+        LOG.debug("Executing '{}' in {}", line, workingDir);
+        final Process process;
+        try {
+            process = new ProcessBuilder(command).directory(workingDir)
+                    .start();
+        } catch (final IOException ex) {
+            throw new RuntimeException("Failed to start: " + line, ex);
+        }
+        IOUtils.closeQuietly(process.getOutputStream());
+
+        final AtomicLong lastActivity = new AtomicLong(System.nanoTime());
+        final Thread outPump = pump(process.getInputStream(), out,
+                lastActivity);
+        final Thread errPump = pump(process.getErrorStream(), err,
+                lastActivity);
+        final long start = System.nanoTime();
+        try {
+            while (!process.waitFor(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (token != null && token.isCancelled()) {
+                    kill(process);
+                    throw new CancellationException("Cancelled: " + line);
+                }
+                final long now = System.nanoTime();
+                if (timeoutSeconds > 0 && now - start > TimeUnit.SECONDS
+                        .toNanos(timeoutSeconds)) {
+                    kill(process);
+                    throw new RuntimeException("Aborted after "
+                            + timeoutSeconds + " seconds: " + line);
+                }
+                if (stallSeconds > 0 && now - lastActivity
+                        .get() > TimeUnit.SECONDS.toNanos(stallSeconds)) {
+                    kill(process);
+                    throw new RuntimeException("Aborted after " + stallSeconds
+                            + " seconds without progress: " + line);
+                }
+            }
+            outPump.join(KILL_WAIT_MILLIS);
+            errPump.join(KILL_WAIT_MILLIS);
+            return process.exitValue();
+        } catch (final InterruptedException ex) {
+            kill(process);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted: " + line, ex);
+        }
+
+    }
+
+    private static Thread pump(final InputStream in, final OutputStream out,
+            final AtomicLong lastActivity) {
+        final Thread thread = new Thread(() -> {
+            final byte[] buf = new byte[4096];
+            try {
+                int count;
+                while ((count = in.read(buf)) != -1) {
+                    lastActivity.set(System.nanoTime());
+                    out.write(buf, 0, count);
+                    out.flush();
+                }
+            } catch (final IOException ex) {
+                LOG.debug("Stopped reading command output: {}",
+                        ex.getMessage());
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+        }, "command-output");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void kill(final Process process) {
+        process.destroy();
+        try {
+            if (!process.waitFor(KILL_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (final InterruptedException ex) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,280 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static java.nio.file.attribute.PosixFilePermission.GROUP_READ;
+import static java.nio.file.attribute.PosixFilePermission.OTHERS_READ;
+import static java.nio.file.attribute.PosixFilePermission.OWNER_READ;
+import static java.nio.file.attribute.PosixFilePermission.OWNER_WRITE;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.validation.constraints.NotNull;
+
+import org.fuin.devsupwiz.common.DevSupWizUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects files in the SSH directory that are written together. Nothing is
+ * changed before {@link #commit()} is called. Then the content of every file
+ * is first written to a temporary file next to it. Only if all of them were
+ * written successfully, the files are changed in the order they were added:
+ * A replaced file is atomically renamed to its final name and content to
+ * append is added to the end of the existing file in place while holding a
+ * lock, so lines written concurrently by others are kept. Symbolic links are
+ * followed and an existing file keeps its permissions. The atomicity is per
+ * file: A failure while writing the content leaves all existing files
+ * untouched, but a failure while changing them may leave the files changed
+ * before in place.
+ */
+final class SshFileBatch {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(SshFileBatch.class);
+
+    private final List<Entry> entries;
+
+    /**
+     * Default constructor.
+     */
+    SshFileBatch() {
+        super();
+        entries = new ArrayList<>();
+    }
+
+    /**
+     * Adds a file that will be replaced.
+     * 
+     * @param file
+     *            File to create or replace.
+     * @param ownerOnly
+     *            TRUE if only the owner may read the file (private keys).
+     * @param content
+     *            Writes the content of the file.
+     */
+    void write(@NotNull final File file, final boolean ownerOnly,
+            @NotNull final Content content) {
+        entries.add(new Entry(file, ownerOnly, false, content));
+    }
+
+    /**
+     * Adds content to the end of a file that may already exist.
+     * 
+     * @param file
+     *            File to append to.
+     * @param ownerOnly
+     *            TRUE if only the owner may read the file.
+     * @param content
+     *            Writes the content to append.
+     */
+    void append(@NotNull final File file, final boolean ownerOnly,
+            @NotNull final Content content) {
+        entries.add(new Entry(file, ownerOnly, true, content));
+    }
+
+    /**
+     * Writes all files. In case of an error, the remaining temporary files are
+     * removed.
+     * 
+     * @throws IOException
+     *             Error writing the files.
+     */
+    void commit() throws IOException {
+        final List<Path> temps = new ArrayList<>();
+        int moved = 0;
+        try {
+            for (final Entry entry : entries) {
+                temps.add(entry.writeTemp());
+            }
+            for (; moved < entries.size(); moved++) {
+                entries.get(moved).apply(temps.get(moved));
+            }
+        } catch (final IOException | RuntimeException ex) {
+            for (int i = moved; i < temps.size(); i++) {
+                Files.deleteIfExists(temps.get(i));
+            }
+            throw ex;
+        }
+        LOG.info("Wrote {} files", entries.size());
+    }
+
+    /**
+     * Writes the content of a file.
+     */
+    @FunctionalInterface
+    interface Content {
+
+        /**
+         * Writes the content.
+         * 
+         * @param channel
+         *            Channel to write to. It will be closed by the caller.
+         * 
+         * @throws IOException
+         *             Error writing the content.
+         */
+        void writeTo(FileChannel channel) throws IOException;
+
+    }
+
+    /**
+     * File to write.
+     */
+    private static final class Entry {
+
+        private final File file;
+
+        private final boolean ownerOnly;
+
+        private final boolean append;
+
+        private final Content content;
+
+        Entry(final File file, final boolean ownerOnly, final boolean append,
+                final Content content) {
+            super();
+            this.file = file.getAbsoluteFile();
+            this.ownerOnly = ownerOnly;
+            this.append = append;
+            this.content = content;
+        }
+
+        /**
+         * Writes the content to a temporary file next to the target. In case
+         * of a replaced file, the temporary file already has the permissions
+         * of the final file.
+         * 
+         * @return Temporary file.
+         * 
+         * @throws IOException
+         *             Error writing the file.
+         */
+        Path writeTemp() throws IOException {
+            final Path target = target();
+            final Path dir = target.getParent();
+            Files.createDirectories(dir);
+            final Path temp = Files.createTempFile(dir,
+                    "." + target.getFileName(), ".tmp");
+            try {
+                if (append || ownerOnly || !Files.exists(target)) {
+                    setDefaultPermissions(temp);
+                } else if (Files.getFileAttributeView(target,
+                        PosixFileAttributeView.class) != null) {
+                    Files.setPosixFilePermissions(temp,
+                            Files.getPosixFilePermissions(target));
+                }
+                try (final FileChannel channel = FileChannel.open(temp,
+                        StandardOpenOption.WRITE)) {
+                    content.writeTo(channel);
+                    channel.force(false);
+                }
+                return temp;
+            } catch (final IOException | RuntimeException ex) {
+                Files.deleteIfExists(temp);
+                throw ex;
+            }
+        }
+
+        /**
+         * Replaces the target with the temporary file or appends the
+         * temporary file to the target. The temporary file is removed
+         * afterwards.
+         * 
+         * @param temp
+         *            Temporary file created by {@link #writeTemp()}.
+         * 
+         * @throws IOException
+         *             Error changing the target.
+         */
+        void apply(final Path temp) throws IOException {
+            final Path target = target();
+            if (!append) {
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (final AtomicMoveNotSupportedException ex) {
+                    Files.move(temp, target,
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+                return;
+            }
+            final boolean created = !Files.exists(target);
+            try (final FileChannel channel = FileChannel.open(target,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+                    final FileChannel source = FileChannel.open(temp,
+                            StandardOpenOption.READ)) {
+                final FileLock lock = channel.lock();
+                try {
+                    if (created) {
+                        setDefaultPermissions(target);
+                    }
+                    long pos = 0;
+                    while (pos < source.size()) {
+                        pos = pos + source.transferTo(pos,
+                                source.size() - pos, channel);
+                    }
+                    channel.force(false);
+                } finally {
+                    lock.release();
+                }
+            }
+            Files.delete(temp);
+        }
+
+        /**
+         * Returns the file to change. In case of a symbolic link, this is the
+         * file the link points to.
+         * 
+         * @return Target file.
+         * 
+         * @throws IOException
+         *             Error resolving a symbolic link.
+         */
+        private Path target() throws IOException {
+            final Path path = file.toPath();
+            if (Files.exists(path)) {
+                return path.toRealPath();
+            }
+            return path;
+        }
+
+        private void setDefaultPermissions(final Path path) {
+            if (ownerOnly) {
+                DevSupWizUtils.setFilePermissions(path.toFile(), OWNER_READ,
+                        OWNER_WRITE);
+            } else {
+                DevSupWizUtils.setFilePermissions(path.toFile(), OWNER_READ,
+                        OWNER_WRITE, GROUP_READ, OTHERS_READ);
+            }
+        }
+
+    }
+
+}
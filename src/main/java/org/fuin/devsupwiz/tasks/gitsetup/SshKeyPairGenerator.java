@@ -19,184 +19,185 @@ package org.fuin.devsupwiz.tasks.gitsetup;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.StringWriter;
-import java.math.BigInteger;
+import java.io.OutputStream;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.charset.Charset;
 import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
-import java.security.interfaces.RSAPublicKey;
-import java.util.Base64;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
-
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
-import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
+import javax.validation.constraints.NotNull;
 
 /**
  * Generates a new key pair for SSH.
  */
 public final class SshKeyPairGenerator {
 
+    /** Size of RSA keys if nothing else is configured. */
+    public static final int DEFAULT_RSA_KEY_SIZE = 2048;
+
+    private static final Charset US_ASCII = Charset.forName("us-ascii");
+
     private final String user;
     
+    private final SshKeyType type;
+
     private final KeyPair keyPair;
     
-    private final String privateKey;
-    
+    private final byte[] publicKeyBase64;
+
     private final String publicKey;
     
     /**
-     * Constructor with user name.
+     * Constructor with user name. Generates a 2048 bit RSA key pair.
      * 
      * @param user Username.
      */
     public SshKeyPairGenerator(@NotEmpty final String user) {
+        this(user, SshKeyType.RSA, DEFAULT_RSA_KEY_SIZE);
+    }
+
+    /**
+     * Constructor that generates a new key pair.
+     * 
+     * @param user
+     *            Username.
+     * @param type
+     *            Type of the key pair.
+     * @param keySize
+     *            Size of the key in bits (Only used for RSA).
+     */
+    public SshKeyPairGenerator(@NotEmpty final String user,
+            @NotNull final SshKeyType type, @Min(1024) final int keySize) {
+        this(user, type, generateKeyPair(type, keySize));
+    }
+
+    /**
+     * Constructor with a key pair that was generated before.
+     * 
+     * @param user
+     *            Username.
+     * @param type
+     *            Type of the key pair.
+     * @param keyPair
+     *            Key pair of the given type.
+     */
+    public SshKeyPairGenerator(@NotEmpty final String user,
+            @NotNull final SshKeyType type, @NotNull final KeyPair keyPair) {
         super();
         
         this.user = user;        
-        try {
-            final KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA",
-                    BouncyCastleProvider.PROVIDER_NAME);
-            kpg.initialize(2048);
-            keyPair = kpg.generateKeyPair();
-            privateKey = createPrivate(keyPair);
-            publicKey = createPublic(keyPair, user);            
-        } catch (final NoSuchAlgorithmException | NoSuchProviderException ex) {
-            throw new RuntimeException("Failed to generate a key pair for SSH", ex);
-        }
+        this.type = type;
+        this.keyPair = keyPair;
+        publicKeyBase64 = SshPublicKeyEncoder.encodeBase64(type,
+                keyPair.getPublic());
+        publicKey = SshPublicKeyEncoder.toString(type, publicKeyBase64, user);
         
     }
 
     /**
-     * Returns the user.
+     * Generates a new key pair with the shared {@link SshKeyService}.
      * 
-     * @return User name.
+     * @param type
+     *            Type of the key pair.
+     * @param keySize
+     *            Size of the key in bits (Only used for RSA).
+     * 
+     * @return New key pair.
      */
-    public final String getUser() {
-        return user;
+    public static KeyPair generateKeyPair(@NotNull final SshKeyType type,
+            @Min(1024) final int keySize) {
+        return SshKeyService.getInstance()
+                .generateKeyPair(type, keySize, SshKeyService.RANDOM_DEFAULT)
+                .getKeyPair();
     }
 
     /**
-     * Returns the key pair.
+     * Returns the user.
      * 
-     * @return Newly generated key pair.
+     * @return User name.
      */
-    public final KeyPair getKeyPair() {
-        return keyPair;
+    public final String getUser() {
+        return user;
     }
 
     /**
-     * Returns the private key string.
+     * Returns the type of the key pair.
      * 
-     * @return Private key as stored in "~/.ssh/id_rsa".
+     * @return Key type.
      */
-    public final String getPrivateKey() {
-        return privateKey;
+    public final SshKeyType getType() {
+        return type;
     }
 
     /**
-     * Returns the public key string.
+     * Returns the key pair.
      * 
-     * @return Public key as stored in "~/.ssh/id_rsa.pub".
+     * @return Newly generated key pair.
      */
-    public final String getPublicKey() {
-        return publicKey;
+    public final KeyPair getKeyPair() {
+        return keyPair;
     }
 
     /**
-     * Encodes the public key according to RFC #4253.
-     * 
-     * @param key
-     *            Public key to encode.
+     * Returns the private key string without passphrase.
      * 
-     * @return Base64 encoded key.
-     * 
-     * @throws IOException
-     *             Error writing the key.
+     * @return Private key as stored in "~/.ssh/id_rsa" (Or the file name of
+     *         the key type).
      */
-    private static String encodePublicKey(final RSAPublicKey key)
-            throws IOException {
-
+    public final String getPrivateKey() {
         final ByteArrayOutputStream out = new ByteArrayOutputStream();
-
-        /* encode the "ssh-rsa" string */
-        final byte[] sshrsa = new byte[] { 0, 0, 0, 7, 's', 's', 'h', '-', 'r', 's', 'a' };
-        out.write(sshrsa);
-
-        /* Encode the public exponent */
-        final BigInteger e = key.getPublicExponent();
-        final byte[] exponent = e.toByteArray();
-        out.write(encodeUInt32(exponent.length));
-        out.write(exponent);
-
-        /* Encode the modulus */
-        final BigInteger m = key.getModulus();
-        final byte[] modulus = m.toByteArray();
-        out.write(encodeUInt32(modulus.length));
-        out.write(modulus);
-
-        final byte[] bytes = out.toByteArray();
-        return new String(Base64.getEncoder().encode(bytes),
-                Charset.forName("us-ascii"));
+        try {
+            OpenSshPrivateKeyWriter.write(out, type, keyPair, user);
+        } catch (final IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        return new String(out.toByteArray(), US_ASCII);
     }
 
     /**
-     * Converts the integer value into an unsigned 32 integer.
+     * Writes the private key in the "openssh-key-v1" format.
      * 
-     * @param value
-     *            Value to convert.
+     * @param out
+     *            Stream to write to, usually the one of the private key file.
+     *            It will not be closed.
+     * @param passphrase
+     *            Passphrase or <code>null</code> (or empty) to write the key
+     *            unencrypted.
+     * @param rounds
+     *            Number of KDF rounds (Only used with passphrase).
      * 
-     * @return Integer as byte array.
+     * @throws IOException
+     *             Error writing the key.
      */
-    private static byte[] encodeUInt32(final int value) {
-        final byte[] tmp = new byte[4];
-        tmp[0] = (byte) ((value >>> 24) & 0xff);
-        tmp[1] = (byte) ((value >>> 16) & 0xff);
-        tmp[2] = (byte) ((value >>> 8) & 0xff);
-        tmp[3] = (byte) (value & 0xff);
-        return tmp;
+    public final void writePrivateKey(@NotNull final OutputStream out,
+            final char[] passphrase, final int rounds) throws IOException {
+        OpenSshPrivateKeyWriter.write(out, type, keyPair, user, passphrase,
+                rounds);
     }
 
     /**
-     * Creates the public key string.
-     * 
-     * @param keyPair
-     *            Key pair.
-     * @param user
-     *            User the key is for.
+     * Returns the public key string.
      * 
-     * @return String to be stored in a public key file.
+     * @return Public key as stored in "~/.ssh/id_rsa.pub" (Or the file name
+     *         of the key type).
      */
-    private static String createPublic(final KeyPair keyPair,
-            final String user) {
-        try {
-            final RSAPublicKey key = (RSAPublicKey) keyPair.getPublic();
-            return "ssh-rsa " + encodePublicKey(key) + " " + user;
-        } catch (final IOException ex) {
-            throw new RuntimeException(ex);
-        }
+    public final String getPublicKey() {
+        return publicKey;
     }
 
     /**
-     * Creates the text for the private key file.
+     * Writes the public key with a trailing line feed like "ssh-keygen" does.
      * 
-     * @param keyPair
-     *            Key pair with the private key.
+     * @param channel
+     *            Channel to write to, usually the one of the public key file.
      * 
-     * @return String to be stored in the public key file.
+     * @throws IOException
+     *             Error writing the key.
      */
-    private static String createPrivate(final KeyPair keyPair) {
-        try {
-            final StringWriter strWriter = new StringWriter();
-            try (final JcaPEMWriter pemWriter = new JcaPEMWriter(strWriter)) {
-                pemWriter.writeObject(keyPair.getPrivate());
-            }
-            return strWriter.toString();
-        } catch (final IOException ex) {
-            throw new RuntimeException(ex);
-        }
+    public final void writePublicKey(
+            @NotNull final GatheringByteChannel channel) throws IOException {
+        SshPublicKeyEncoder.write(channel, type, publicKeyBase64, user);
     }
 
 }
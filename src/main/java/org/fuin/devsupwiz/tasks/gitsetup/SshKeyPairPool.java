@@ -0,0 +1,189 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generates SSH key pairs in the background before they are needed. Every
+ * task that will need a key pair requests one as soon as the configuration
+ * is loaded, so the pool holds exactly as many key pairs as there are tasks.
+ * While the user fills in the first screens, the key pairs are generated by
+ * low priority threads. A task that finds no key pair of the requested type
+ * in the pool simply generates one itself.
+ */
+final class SshKeyPairPool {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(SshKeyPairPool.class);
+
+    /** Seconds an idle thread waits for more work before it terminates. */
+    private static final int KEEP_ALIVE_SECONDS = 30;
+
+    private static final SshKeyPairPool INSTANCE = new SshKeyPairPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+    private final ThreadPoolExecutor executor;
+
+    private final Map<String, Queue<Future<GeneratedSshKeyPair>>> pending;
+
+    /**
+     * Constructor with number of threads.
+     * 
+     * @param threads
+     *            Maximum number of key pairs generated in parallel.
+     */
+    SshKeyPairPool(@Min(1) final int threads) {
+        super();
+        final AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    final Thread thread = new Thread(runnable,
+                            "ssh-key-pool-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        pending = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the pool shared by all tasks.
+     * 
+     * @return Pool instance.
+     */
+    static SshKeyPairPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts generating a key pair in the background.
+     * 
+     * @param type
+     *            Type of the key pair.
+     * @param keySize
+     *            Size of the key in bits (Only used for RSA).
+     * @param random
+     *            Source of randomness like
+     *            {@link SshKeyService#RANDOM_DEFAULT}.
+     */
+    void prefetch(@NotNull final SshKeyType type, @Min(1024) final int keySize,
+            @NotEmpty final String random) {
+        final String key = SshKeyService.key(type, keySize, random);
+        LOG.debug("Pre-generating {} key pair", key);
+        pending.computeIfAbsent(key,
+                k -> new ConcurrentLinkedQueue<>())
+                .add(executor.submit(() -> SshKeyService.getInstance()
+                        .generateKeyPair(type, keySize, random)));
+    }
+
+    /**
+     * Prepares a generator in the background, so a key pair requested later
+     * is generated without any setup cost.
+     * 
+     * @param type
+     *            Type of the key pair.
+     * @param keySize
+     *            Size of the key in bits (Only used for RSA).
+     * @param random
+     *            Source of randomness like
+     *            {@link SshKeyService#RANDOM_DEFAULT}.
+     */
+    void warmUp(@NotNull final SshKeyType type, @Min(1024) final int keySize,
+            @NotEmpty final String random) {
+        executor.execute(() -> SshKeyService.getInstance().warmUp(type,
+                keySize, random));
+    }
+
+    /**
+     * Returns a key pair from the pool. Waits if the key pair is still being
+     * generated and generates a new one if there is none in the pool.
+     * 
+     * @param type
+     *            Type of the key pair.
+     * @param keySize
+     *            Size of the key in bits (Only used for RSA).
+     * @param random
+     *            Source of randomness like
+     *            {@link SshKeyService#RANDOM_DEFAULT}.
+     * 
+     * @return Key pair that is not used anywhere else.
+     */
+    GeneratedSshKeyPair take(@NotNull final SshKeyType type,
+            @Min(1024) final int keySize, @NotEmpty final String random) {
+        final String key = SshKeyService.key(type, keySize, random);
+        final Queue<Future<GeneratedSshKeyPair>> queue = pending.get(key);
+        final Future<GeneratedSshKeyPair> future = queue == null ? null : queue.poll();
+        if (future != null) {
+            try {
+                if (!future.isDone()) {
+                    LOG.info("Waiting for pre-generated {} key pair", key);
+                }
+                return future.get();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(
+                        "Interrupted while waiting for a key pair", ex);
+            } catch (final ExecutionException ex) {
+                LOG.warn("Pre-generating a key pair failed: {}",
+                        String.valueOf(ex.getCause()));
+            }
+        }
+        return SshKeyService.getInstance().generateKeyPair(type, keySize,
+                random);
+    }
+
+    /**
+     * Returns the number of key pairs in the pool (Including those still
+     * being generated).
+     * 
+     * @param type
+     *            Type of the key pair.
+     * @param keySize
+     *            Size of the key in bits (Only used for RSA).
+     * @param random
+     *            Source of randomness like
+     *            {@link SshKeyService#RANDOM_DEFAULT}.
+     * 
+     * @return Number of key pairs.
+     */
+    int size(@NotNull final SshKeyType type, @Min(1024) final int keySize,
+            @NotEmpty final String random) {
+        final Queue<Future<GeneratedSshKeyPair>> queue = pending
+                .get(SshKeyService.key(type, keySize, random));
+        return queue == null ? 0 : queue.size();
+    }
+
+}
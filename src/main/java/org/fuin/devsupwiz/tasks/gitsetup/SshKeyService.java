@@ -0,0 +1,285 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generates the SSH key pairs for all tasks. The BouncyCastle provider is
+ * registered only once and initialized generators with an already seeded
+ * random number generator are kept per key type, size and source of
+ * randomness. A generator is used by one thread at a time and is handed back
+ * afterwards, so any thread can reuse it later. Only the first key pair of a
+ * kind pays for looking up the provider, creating the generator and seeding.
+ */
+final class SshKeyService {
+
+    /** Default random number generator of the JVM. */
+    static final String RANDOM_DEFAULT = "default";
+
+    /**
+     * Reads "/dev/urandom" and never blocks, even if the kernel entropy pool
+     * of a freshly booted machine is not initialized yet (Unix only).
+     */
+    static final String RANDOM_NATIVE_NON_BLOCKING = "NativePRNGNonBlocking";
+
+    /** Deterministic random bit generator of NIST SP 800-90A (Java 9+). */
+    static final String RANDOM_DRBG = "DRBG";
+
+    /** Regular expression for all valid random strategies. */
+    static final String RANDOM_PATTERN = RANDOM_DEFAULT + "|"
+            + RANDOM_NATIVE_NON_BLOCKING + "|" + RANDOM_DRBG;
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(SshKeyService.class);
+
+    private static final SshKeyService INSTANCE = new SshKeyService();
+
+    private final Map<String, Queue<SeededGenerator>> generators;
+
+    /**
+     * Default constructor. Use {@link #getInstance()} outside of tests.
+     */
+    SshKeyService() {
+        super();
+        // Make sure BC is available
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+        generators = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the service shared by all tasks. The BouncyCastle provider is
+     * registered before the instance is returned the first time.
+     * 
+     * @return Service instance.
+     */
+    static SshKeyService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Generates a new key pair using an idle generator of the requested kind.
+     * A new generator is only created if all existing ones are in use.
+     * 
+     * @param type
+     *            Type of the key pair.
+     * @param keySize
+     *            Size of the key in bits (Only used for RSA).
+     * @param random
+     *            Source of randomness like {@link #RANDOM_DEFAULT}.
+     * 
+     * @return New key pair with the time needed. The seed time is the one of
+     *         the generator, even if it was paid earlier.
+     */
+    GeneratedSshKeyPair generateKeyPair(@NotNull final SshKeyType type,
+            @Min(1024) final int keySize, @NotEmpty final String random) {
+        final Queue<SeededGenerator> idle = idle(type, keySize, random);
+        SeededGenerator generator = idle.poll();
+        final boolean preSeeded = generator != null;
+        if (!preSeeded) {
+            generator = new SeededGenerator(type, keySize, random);
+        }
+        final long start = System.nanoTime();
+        final KeyPair keyPair;
+        try {
+            keyPair = generator.generator.generateKeyPair();
+        } finally {
+            idle.add(generator);
+        }
+        final GeneratedSshKeyPair result = new GeneratedSshKeyPair(keyPair,
+                random, generator.seedNanos, preSeeded,
+                System.nanoTime() - start);
+        LOG.debug("Generated {}", result);
+        return result;
+    }
+
+    /**
+     * Prepares a generator in case there is no idle one of the requested kind,
+     * so the next key pair is generated without any setup cost. As the
+     * generator is shared, it does not matter which thread calls this method.
+     * The random number generator is seeded and for the fast key types a
+     * first key pair is generated to load and compile the code involved. The
+     * time needed for seeding is reported with every key pair the generator
+     * creates later.
+     * 
+     * @param type
+     *            Type of the key pair.
+     * @param keySize
+     *            Size of the key in bits (Only used for RSA).
+     * @param random
+     *            Source of randomness like {@link #RANDOM_DEFAULT}.
+     */
+    void warmUp(@NotNull final SshKeyType type, @Min(1024) final int keySize,
+            @NotEmpty final String random) {
+        final Queue<SeededGenerator> idle = idle(type, keySize, random);
+        if (!idle.isEmpty()) {
+            return;
+        }
+        final long start = System.nanoTime();
+        final SeededGenerator generator = new SeededGenerator(type, keySize,
+                random);
+        if (type != SshKeyType.RSA) {
+            generator.generator.generateKeyPair();
+        }
+        idle.add(generator);
+        LOG.debug("Warmed up {} generator in {} ms (Seeding {} ms)",
+                key(type, keySize, random),
+                (System.nanoTime() - start) / 1000000,
+                generator.seedNanos / 1000000);
+    }
+
+    /**
+     * Returns the generators of a kind that are currently not in use.
+     * 
+     * @param type
+     *            Type of the key pair.
+     * @param keySize
+     *            Size of the key in bits (Only used for RSA).
+     * @param random
+     *            Source of randomness.
+     * 
+     * @return Idle generators.
+     */
+    private Queue<SeededGenerator> idle(final SshKeyType type,
+            final int keySize, final String random) {
+        return generators.computeIfAbsent(key(type, keySize, random),
+                key -> new ConcurrentLinkedQueue<>());
+    }
+
+    /**
+     * Creates and seeds a random number generator. Seeding is what blocks on
+     * machines without enough entropy, so it is done here and not when the
+     * first key pair is generated. In case the JVM does not support the
+     * requested algorithm, the default is used.
+     * 
+     * @param random
+     *            Source of randomness like {@link #RANDOM_DEFAULT}.
+     * 
+     * @return Seeded random number generator.
+     */
+    static SecureRandom createRandom(@NotEmpty final String random) {
+        SecureRandom secureRandom;
+        if (RANDOM_DEFAULT.equals(random)) {
+            secureRandom = new SecureRandom();
+        } else {
+            try {
+                secureRandom = SecureRandom.getInstance(random);
+            } catch (final NoSuchAlgorithmException ex) {
+                LOG.warn("Random number generator '{}' is not available - "
+                        + "Using the default", random);
+                secureRandom = new SecureRandom();
+            }
+        }
+        secureRandom.nextBytes(new byte[8]);
+        return secureRandom;
+    }
+
+    /**
+     * Creates and initializes a new generator.
+     * 
+     * @param type
+     *            Type of the key pair.
+     * @param keySize
+     *            Size of the key in bits (Only used for RSA).
+     * @param random
+     *            Source of randomness.
+     * 
+     * @return Generator ready to use.
+     */
+    static KeyPairGenerator createGenerator(@NotNull final SshKeyType type,
+            @Min(1024) final int keySize, @NotNull final SecureRandom random) {
+        try {
+            final KeyPairGenerator kpg = KeyPairGenerator.getInstance(
+                    type.getAlgorithm(), BouncyCastleProvider.PROVIDER_NAME);
+            if (type == SshKeyType.RSA) {
+                kpg.initialize(keySize, random);
+            } else if (type.getCurveSpec() != null) {
+                kpg.initialize(new ECGenParameterSpec(type.getCurveSpec()),
+                        random);
+            } else {
+                kpg.initialize(255, random);
+            }
+            return kpg;
+        } catch (final NoSuchAlgorithmException | NoSuchProviderException
+                | InvalidAlgorithmParameterException ex) {
+            throw new RuntimeException("Failed to generate a key pair for SSH", ex);
+        }
+    }
+
+    /**
+     * Returns a key that identifies type and size of a key pair.
+     * 
+     * @param type
+     *            Type of the key pair.
+     * @param keySize
+     *            Size of the key in bits (Only used for RSA).
+     * @param random
+     *            Source of randomness.
+     * 
+     * @return Key like "rsa-4096/default" or "ed25519/DRBG".
+     */
+    static String key(@NotNull final SshKeyType type, final int keySize,
+            @NotEmpty final String random) {
+        if (type == SshKeyType.RSA) {
+            return type.getName() + "-" + keySize + "/" + random;
+        }
+        return type.getName() + "/" + random;
+    }
+
+    /**
+     * Generator together with the time that was needed to create and seed it.
+     */
+    private static final class SeededGenerator {
+
+        private final KeyPairGenerator generator;
+
+        private final long seedNanos;
+
+        SeededGenerator(final SshKeyType type, final int keySize,
+                final String random) {
+            super();
+            final long start = System.nanoTime();
+            this.generator = createGenerator(type, keySize,
+                    createRandom(random));
+            this.seedNanos = System.nanoTime() - start;
+        }
+
+    }
+
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import javax.validation.constraints.NotEmpty;
+
+/**
+ * Type of an SSH key pair.
+ */
+public enum SshKeyType {
+
+    /** RSA with a configurable key size. */
+    RSA("rsa", "RSA", null, null, "ssh-rsa", "id_rsa"),
+
+    /** Edwards-curve signature on Curve25519 (Fast and small keys). */
+    ED25519("ed25519", "Ed25519", null, null, "ssh-ed25519",
+            "id_ed25519"),
+
+    /** ECDSA on the NIST P-256 curve. */
+    ECDSA_P256("ecdsa-p256", "EC", "secp256r1", "nistp256", "ecdsa-sha2-nistp256",
+            "id_ecdsa"),
+
+    /** ECDSA on the NIST P-384 curve. */
+    ECDSA_P384("ecdsa-p384", "EC", "secp384r1", "nistp384", "ecdsa-sha2-nistp384",
+            "id_ecdsa"),
+
+    /** ECDSA on the NIST P-521 curve. */
+    ECDSA_P521("ecdsa-p521", "EC", "secp521r1", "nistp521", "ecdsa-sha2-nistp521",
+            "id_ecdsa");
+
+    /** Regular expression for all valid names. */
+    public static final String PATTERN = "rsa|ed25519|ecdsa-p256|ecdsa-p384|ecdsa-p521";
+
+    private final String name;
+
+    private final String algorithm;
+
+    private final String curveSpec;
+
+    private final String curve;
+
+    private final String sshName;
+
+    private final String fileName;
+
+    private SshKeyType(final String name, final String algorithm,
+            final String curveSpec, final String curve, final String sshName,
+            final String fileName) {
+        this.name = name;
+        this.algorithm = algorithm;
+        this.curveSpec = curveSpec;
+        this.curve = curve;
+        this.sshName = sshName;
+        this.fileName = fileName;
+    }
+
+    /**
+     * Returns the name used in the configuration.
+     * 
+     * @return Name like "ed25519".
+     */
+    public final String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the algorithm of the key pair generator.
+     * 
+     * @return JCA algorithm name.
+     */
+    public final String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Returns the name of the curve for the key pair generator.
+     * 
+     * @return Curve like "secp256r1" or <code>null</code> if the type has no
+     *         named curve parameter.
+     */
+    public final String getCurveSpec() {
+        return curveSpec;
+    }
+
+    /**
+     * Returns the SSH identifier of the curve.
+     * 
+     * @return Curve like "nistp256" or <code>null</code> if the type has no
+     *         named curve parameter.
+     */
+    public final String getCurve() {
+        return curve;
+    }
+
+    /**
+     * Returns the key type as written to the public key file.
+     * 
+     * @return Type like "ssh-ed25519".
+     */
+    public final String getSshName() {
+        return sshName;
+    }
+
+    /**
+     * Returns the default name of the private key file. The public key file
+     * has the same name with an additional ".pub" extension.
+     * 
+     * @return File name like "id_ed25519".
+     */
+    public final String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Returns the key type with the given name.
+     * 
+     * @param name
+     *            Name like "ecdsa-p256".
+     * 
+     * @return Key type.
+     */
+    public static SshKeyType fromName(@NotEmpty final String name) {
+        for (final SshKeyType type : values()) {
+            if (type.name.equals(name)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown SSH key type '" + name
+                + "', expected one of: " + PATTERN);
+    }
+
+}
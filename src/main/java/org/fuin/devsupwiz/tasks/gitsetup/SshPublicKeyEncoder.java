@@ -0,0 +1,283 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.Charset;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECPoint;
+import java.util.Base64;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Encodes public keys in the OpenSSH format according to RFC #4253 (RSA), RFC
+ * #5656 (ECDSA) and RFC #8709 (Ed25519). The size of the encoded key is
+ * calculated first, so the key is written into a buffer of exactly that size
+ * without any intermediate arrays or streams.
+ */
+final class SshPublicKeyEncoder {
+
+    private static final Charset US_ASCII = Charset.forName("us-ascii");
+
+    /** Size of a raw Ed25519 public key. */
+    private static final int ED25519_KEY_SIZE = 32;
+
+    /** Size of the length prefix of a string. */
+    static final int LENGTH_SIZE = 4;
+
+    /** Marker for an uncompressed elliptic curve point. */
+    private static final byte UNCOMPRESSED = 0x04;
+
+    /**
+     * Private utility class constructor.
+     */
+    private SshPublicKeyEncoder() {
+        throw new UnsupportedOperationException(
+                "Cannot create an instance of a utility class");
+    }
+
+    /**
+     * Returns the size of the binary public key.
+     * 
+     * @param type
+     *            Type of the key.
+     * @param key
+     *            Public key to encode.
+     * 
+     * @return Number of bytes.
+     */
+    static int size(@NotNull final SshKeyType type,
+            @NotNull final PublicKey key) {
+        int size = LENGTH_SIZE + type.getSshName().length();
+        if (type == SshKeyType.RSA) {
+            final RSAPublicKey rsaKey = (RSAPublicKey) key;
+            size = size + mpintSize(rsaKey.getPublicExponent())
+                    + mpintSize(rsaKey.getModulus());
+        } else if (type == SshKeyType.ED25519) {
+            size = size + LENGTH_SIZE + ED25519_KEY_SIZE;
+        } else {
+            size = size + LENGTH_SIZE + type.getCurve().length() + LENGTH_SIZE
+                    + pointSize((ECPublicKey) key);
+        }
+        return size;
+    }
+
+    /**
+     * Writes the binary public key into a buffer.
+     * 
+     * @param type
+     *            Type of the key.
+     * @param key
+     *            Public key to encode.
+     * @param buffer
+     *            Buffer with at least {@link #size(SshKeyType, PublicKey)}
+     *            bytes remaining.
+     */
+    static void encode(@NotNull final SshKeyType type,
+            @NotNull final PublicKey key, @NotNull final ByteBuffer buffer) {
+
+        /* encode the key type like "ssh-rsa" */
+        putAscii(buffer, type.getSshName());
+
+        if (type == SshKeyType.RSA) {
+            final RSAPublicKey rsaKey = (RSAPublicKey) key;
+            putMpint(buffer, rsaKey.getPublicExponent());
+            putMpint(buffer, rsaKey.getModulus());
+        } else if (type == SshKeyType.ED25519) {
+            /* The X.509 encoding ends with the raw 32 byte key */
+            final byte[] encoded = key.getEncoded();
+            buffer.putInt(ED25519_KEY_SIZE);
+            buffer.put(encoded, encoded.length - ED25519_KEY_SIZE,
+                    ED25519_KEY_SIZE);
+        } else {
+            final ECPublicKey ecKey = (ECPublicKey) key;
+
+            /* Encode the curve identifier like "nistp256" */
+            putAscii(buffer, type.getCurve());
+
+            /* Encode the uncompressed point */
+            final int size = fieldSize(ecKey);
+            final ECPoint point = ecKey.getW();
+            buffer.putInt(1 + 2 * size);
+            buffer.put(UNCOMPRESSED);
+            putUnsigned(buffer, point.getAffineX(), size);
+            putUnsigned(buffer, point.getAffineY(), size);
+        }
+    }
+
+    /**
+     * Encodes the public key with Base64.
+     * 
+     * @param type
+     *            Type of the key.
+     * @param key
+     *            Public key to encode.
+     * 
+     * @return Base64 encoded key as ASCII bytes.
+     */
+    static byte[] encodeBase64(@NotNull final SshKeyType type,
+            @NotNull final PublicKey key) {
+        final ByteBuffer buffer = ByteBuffer.allocate(size(type, key));
+        encode(type, key, buffer);
+        return Base64.getEncoder().encode(buffer.array());
+    }
+
+    /**
+     * Writes a line of a public key file ("ssh-ed25519 AAAA... comment")
+     * including the trailing line feed like "ssh-keygen" does. The parts are
+     * passed to the channel as they are without concatenating them first.
+     * 
+     * @param channel
+     *            Channel to write to.
+     * @param type
+     *            Type of the key.
+     * @param base64
+     *            Base64 encoded key.
+     * @param comment
+     *            Comment like the user name.
+     * 
+     * @throws IOException
+     *             Error writing to the channel.
+     */
+    static void write(@NotNull final GatheringByteChannel channel,
+            @NotNull final SshKeyType type, @NotNull final byte[] base64,
+            @NotNull final String comment) throws IOException {
+        final ByteBuffer[] buffers = new ByteBuffer[] {
+                ByteBuffer.wrap((type.getSshName() + " ").getBytes(US_ASCII)),
+                ByteBuffer.wrap(base64),
+                ByteBuffer.wrap((" " + comment + "\n").getBytes(US_ASCII)) };
+        while (buffers[2].hasRemaining()) {
+            channel.write(buffers);
+        }
+    }
+
+    /**
+     * Creates a line of a public key file without the line feed.
+     * 
+     * @param type
+     *            Type of the key.
+     * @param base64
+     *            Base64 encoded key.
+     * @param comment
+     *            Comment like the user name.
+     * 
+     * @return Public key line.
+     */
+    static String toString(@NotNull final SshKeyType type,
+            @NotNull final byte[] base64, @NotNull final String comment) {
+        final String name = type.getSshName();
+        final byte[] line = new byte[name.length() + base64.length
+                + comment.length() + 2];
+        int pos = putAscii(line, 0, name);
+        line[pos++] = ' ';
+        System.arraycopy(base64, 0, line, pos, base64.length);
+        pos = pos + base64.length;
+        line[pos++] = ' ';
+        putAscii(line, pos, comment);
+        return new String(line, US_ASCII);
+    }
+
+    /**
+     * Returns the size of a positive number including the length prefix.
+     * 
+     * @param value
+     *            Number.
+     * 
+     * @return Number of bytes.
+     */
+    static int mpintSize(final BigInteger value) {
+        // Same as the length of "toByteArray()" for positive values
+        return LENGTH_SIZE + value.bitLength() / 8 + 1;
+    }
+
+    private static int fieldSize(final ECPublicKey key) {
+        return (key.getParams().getCurve().getField().getFieldSize() + 7) / 8;
+    }
+
+    private static int pointSize(final ECPublicKey key) {
+        return 1 + 2 * fieldSize(key);
+    }
+
+    /**
+     * Writes an ASCII string prefixed with its length.
+     * 
+     * @param buffer
+     *            Buffer to write to.
+     * @param str
+     *            String to write.
+     */
+    static void putAscii(final ByteBuffer buffer, final String str) {
+        buffer.putInt(str.length());
+        for (int i = 0; i < str.length(); i++) {
+            buffer.put((byte) str.charAt(i));
+        }
+    }
+
+    private static int putAscii(final byte[] target, final int offset,
+            final String str) {
+        int pos = offset;
+        for (int i = 0; i < str.length(); i++) {
+            final char ch = str.charAt(i);
+            target[pos++] = ch < 0x80 ? (byte) ch : (byte) '?';
+        }
+        return pos;
+    }
+
+    /**
+     * Writes a positive number prefixed with its length.
+     * 
+     * @param buffer
+     *            Buffer to write to.
+     * @param value
+     *            Number to write.
+     */
+    static void putMpint(final ByteBuffer buffer, final BigInteger value) {
+        final byte[] bytes = value.toByteArray();
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Writes a positive number right aligned into a fixed size field.
+     * 
+     * @param buffer
+     *            Buffer to write to.
+     * @param value
+     *            Number to write.
+     * @param size
+     *            Size of the field.
+     */
+    private static void putUnsigned(final ByteBuffer buffer,
+            final BigInteger value, final int size) {
+        final byte[] bytes = value.toByteArray();
+        // Skip the sign byte
+        final int start = bytes.length > size ? bytes.length - size : 0;
+        final int length = bytes.length - start;
+        for (int i = length; i < size; i++) {
+            buffer.put((byte) 0);
+        }
+        buffer.put(bytes, start, length);
+    }
+
+}
@@ -31,6 +31,7 @@ import org.fuin.devsupwiz.common.ConfigImpl;
 import org.fuin.devsupwiz.tasks.gitsetup.CreateGitConfigTask;
 import org.fuin.devsupwiz.tasks.gitsetup.DisplaySshKeyTask;
 import org.fuin.devsupwiz.tasks.gitsetup.GitCloneTask;
+import org.fuin.devsupwiz.tasks.gitsetup.GitRepository;
 import org.fuin.devsupwiz.tasks.gitsetup.PushDefault;
 import org.fuin.devsupwiz.tasks.gitsetup.GenerateSshKeyTask;
 import org.fuin.devsupwiz.tasks.hostname.SetHostnameTask;
@@ -112,6 +113,24 @@ public class TestMarshalUnmarshalConfig {
                 setHostnameTask, createGitConfigTask, generateSshKeyTask,
                 gitCloneTask, createMavenSettingsTask, displaySshKeyTask);
 
+        final GitCloneTask loadedGitCloneTask = testee
+                .findTask(gitCloneTask.getTypeId());
+        assertThat(loadedGitCloneTask.getDepth()).isEqualTo(1);
+        assertThat(loadedGitCloneTask.getFilter()).isEqualTo("blob:none");
+        assertThat(loadedGitCloneTask.getSingleBranch()).isNull();
+        final GitRepository repository = loadedGitCloneTask.getRepositories()
+                .get(0);
+        assertThat(repository.getUrl()).isEqualTo(
+                "git@bitbucket.org:tutorials/tutorials.git.bitbucket.org.git");
+        assertThat(repository.getDepth()).isEqualTo(10);
+        assertThat(repository.getFilter()).isEqualTo("tree:0");
+        assertThat(repository.getSingleBranch()).isTrue();
+        final GitRepository prioritized = loadedGitCloneTask
+                .getRepositories().get(1);
+        assertThat(prioritized.getPriority()).isEqualTo(10);
+        assertThat(prioritized.getSizeHintBytes())
+                .isEqualTo(500L * 1024L * 1024L);
+
     }
 
 }
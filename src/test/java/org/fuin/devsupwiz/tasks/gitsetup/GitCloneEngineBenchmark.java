@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the native and the embedded engine of the {@link GitCloneTask}
+ * by cloning a number of local "file://" repositories. Start it with the
+ * main method as it is no unit test.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GitCloneEngineBenchmark {
+
+    private static final File BASE_DIR = new File(
+            "target/git-clone-engine-benchmark").getAbsoluteFile();
+
+    @Param({ GitCloneTask.ENGINE_NATIVE, GitCloneTask.ENGINE_EMBEDDED })
+    private String engine;
+
+    @Param({ "10" })
+    private int repositories;
+
+    @Param({ "4" })
+    private int parallelism;
+
+    private List<String> urls;
+
+    private File targetDir;
+
+    /**
+     * Creates the origin repositories once.
+     * 
+     * @throws IOException
+     *             Error creating the repositories.
+     */
+    @Setup(Level.Trial)
+    public void createOrigins() throws IOException {
+        final File originsDir = new File(BASE_DIR, "origins");
+        FileUtils.deleteDirectory(BASE_DIR);
+        urls = new ArrayList<>();
+        for (int i = 0; i < repositories; i++) {
+            final File dir = new File(originsDir, "repo" + i);
+            urls.add(GitTestUtils.createOrigin(dir));
+            for (int j = 0; j < 100; j++) {
+                FileUtils.writeStringToFile(new File(dir, "src/File" + j + ".txt"),
+                        "Content " + i + "/" + j, Charset.forName("utf-8"));
+            }
+            GitTestUtils.git(dir, "add", ".");
+            GitTestUtils.git(dir, "-c", "user.name=Test", "-c",
+                    "user.email=test@fuin.org", "commit", "-q", "-m", "Files");
+        }
+        targetDir = new File(BASE_DIR, "git");
+    }
+
+    /**
+     * Removes the clones of the previous invocation.
+     * 
+     * @throws IOException
+     *             Error deleting the directory.
+     */
+    @Setup(Level.Invocation)
+    public void deleteClones() throws IOException {
+        FileUtils.deleteDirectory(targetDir);
+    }
+
+    /**
+     * Clones all repositories.
+     */
+    @Benchmark
+    public void cloneAll() {
+        final List<GitRepository> list = new ArrayList<>();
+        for (final String url : urls) {
+            list.add(new GitRepository(url));
+        }
+        final GitCloneTask task = new GitCloneTask("1", targetDir.getPath(),
+                list);
+        task.setEngine(engine);
+        task.setParallelism(parallelism);
+        task.setStatsFile(new File(BASE_DIR, "stats.properties").getPath());
+        task.execute();
+    }
+
+    /**
+     * Runs the benchmark.
+     * 
+     * @param args
+     *            Not used.
+     * 
+     * @throws RunnerException
+     *             Error running the benchmark.
+     */
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GitCloneEngineBenchmark.class.getSimpleName()).build())
+                        .run();
+    }
+
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+
+import org.junit.Test;
+
+/**
+ * Test for the {@link GitClonePreflight} class.
+ */
+public class GitClonePreflightTest {
+
+    private static final long MB = 1024L * 1024L;
+
+    @Test
+    public void testGetRequiredBytes() {
+
+        // PREPARE
+        final GitCloneStats stats = new GitCloneStats(
+                new File("target/git-preflight-test.properties"));
+        stats.recordBytes("file:///tmp/recorded.git", 300 * MB);
+        final GitRepository hint = new GitRepository("file:///tmp/hint.git");
+        hint.setSizeHint("100M");
+        final GitClonePreflight testee = new GitClonePreflight(
+                new File("target"), stats);
+
+        // TEST
+        testee.add(hint);
+        testee.add(new GitRepository("file:///tmp/recorded.git"));
+        testee.add(new GitRepository("file:///tmp/unknown.git"));
+
+        // VERIFY (Unknown has the average size, checkout doubles, +10%)
+        assertThat(testee.getRequiredBytes()).isEqualTo(600 * MB * 2 * 110 / 100);
+
+    }
+
+    @Test
+    public void testRun() {
+
+        // PREPARE
+        final File dir = new File("target");
+        dir.mkdirs();
+        final GitRepository repository = new GitRepository(
+                "file:///tmp/small.git");
+        repository.setSizeHint("1M");
+        final GitClonePreflight testee = new GitClonePreflight(dir,
+                new GitCloneStats(new File("target/git-preflight-test.properties")));
+        testee.add(repository);
+
+        // TEST
+        testee.run();
+
+        // VERIFY (Throughput is only measured on request)
+        assertThat(testee.getUsableBytes()).isGreaterThan(0L);
+        assertThat(testee.getBytesPerSecond()).isEqualTo(0L);
+        assertThat(testee.suggestParallelism(4)).isEqualTo(4);
+
+    }
+
+    @Test
+    public void testMeasureThroughput() {
+
+        // PREPARE
+        final File dir = new File("target");
+        dir.mkdirs();
+        final GitClonePreflight testee = new GitClonePreflight(dir,
+                new GitCloneStats(new File("target/git-preflight-test.properties")));
+
+        // TEST
+        final long bytesPerSecond = testee.measureThroughput();
+
+        // VERIFY
+        assertThat(bytesPerSecond).isGreaterThan(0L);
+        assertThat(testee.getBytesPerSecond()).isEqualTo(bytesPerSecond);
+        assertThat(testee.suggestParallelism(1)).isEqualTo(1);
+        assertThat(dir.list((d, name) -> name.startsWith(".devsupwiz-preflight")))
+                .isEmpty();
+
+    }
+
+    @Test
+    public void testRunNotEnoughSpace() {
+
+        // PREPARE
+        final GitRepository repository = new GitRepository(
+                "file:///tmp/huge.git");
+        repository.setSizeHint("99999T");
+        final GitClonePreflight testee = new GitClonePreflight(
+                new File("target"),
+                new GitCloneStats(new File("target/git-preflight-test.properties")));
+        testee.add(repository);
+
+        // TEST & VERIFY
+        assertThatThrownBy(() -> testee.run())
+                .hasMessageContaining("Not enough disk space");
+
+    }
+
+}
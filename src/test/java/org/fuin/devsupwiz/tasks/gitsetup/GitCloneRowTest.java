@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Test for the {@link GitCloneRow} class.
+ */
+public class GitCloneRowTest {
+
+    private static final String URL = "git@bitbucket.org:a/b.git";
+
+    @Test
+    public void testQueued() {
+
+        // PREPARE
+        final GitCloneRow testee = new GitCloneRow(new GitRepository(URL));
+
+        // TEST & VERIFY
+        assertThat(testee.getState()).isEqualTo(GitCloneRow.State.QUEUED);
+        assertThat(testee.getElapsedMillis(1000L)).isEqualTo(0L);
+        assertThat(testee.getFraction()).isEqualTo(0.0);
+        assertThat(testee.getStatusText(1000L)).isEqualTo("queued");
+
+    }
+
+    @Test
+    public void testCloning() {
+
+        // PREPARE
+        final GitRepository repository = new GitRepository(URL);
+        final GitCloneRow testee = new GitCloneRow(repository);
+
+        // TEST
+        testee.started(1000L);
+
+        // VERIFY
+        assertThat(testee.getState()).isEqualTo(GitCloneRow.State.CLONING);
+        assertThat(testee.getFraction()).isEqualTo(-1.0);
+        assertThat(testee.getElapsedMillis(3500L)).isEqualTo(2500L);
+
+        // TEST
+        testee.progress(new GitCloneProgress(repository, "Receiving objects",
+                42, 42, 100, 1024 * 1024, 2 * 1024 * 1024));
+
+        // VERIFY
+        assertThat(testee.getFraction()).isEqualTo(0.42);
+        assertThat(testee.getBytesPerSecond()).isEqualTo(2 * 1024 * 1024);
+        assertThat(testee.getStatusText(3500L))
+                .isEqualTo("cloning " + String.format("%.1f s", 2.5)
+                        + ", 2 MB/s - Receiving objects 42%");
+
+    }
+
+    @Test
+    public void testFinished() {
+
+        // PREPARE
+        final GitRepository repository = new GitRepository(URL);
+        final GitCloneRow testee = new GitCloneRow(repository);
+        testee.started(1000L);
+
+        // TEST
+        testee.finished(new GitCloneResult(repository, true, 1, 2000L,
+                4 * 1024 * 1024, null));
+
+        // VERIFY
+        assertThat(testee.getState()).isEqualTo(GitCloneRow.State.DONE);
+        assertThat(testee.getFraction()).isEqualTo(1.0);
+        assertThat(testee.getElapsedMillis(99999L)).isEqualTo(2000L);
+        assertThat(testee.getBytesPerSecond()).isEqualTo(2 * 1024 * 1024);
+        assertThat(testee.getStatusText(99999L)).isEqualTo(
+                "done " + String.format("%.1f s", 2.0) + ", 2 MB/s");
+
+        // TEST
+        testee.started(5000L);
+        testee.finished(new GitCloneResult(repository, false, 0, 0, 0,
+                "Cancelled"));
+
+        // VERIFY
+        assertThat(testee.getState()).isEqualTo(GitCloneRow.State.FAILED);
+        assertThat(testee.getFraction()).isEqualTo(0.0);
+        assertThat(testee.getStatusText(99999L)).isEqualTo(
+                "failed " + String.format("%.1f s", 0.0) + " - Cancelled");
+
+    }
+
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test for the {@link GitCloneScheduler} class.
+ */
+public class GitCloneSchedulerTest {
+
+    @Test
+    public void testScheduleBySizeHint() {
+
+        // PREPARE
+        final GitRepository small = repo("small", null, "10M");
+        final GitRepository huge = repo("huge", null, "2G");
+        final GitRepository medium = repo("medium", null, "500M");
+        final GitCloneScheduler testee = new GitCloneScheduler(null);
+
+        // TEST
+        final List<GitRepository> result = testee
+                .schedule(Arrays.asList(small, huge, medium), 2);
+
+        // VERIFY
+        assertThat(result).containsExactly(huge, medium, small);
+
+    }
+
+    @Test
+    public void testSchedulePriorityFirst() {
+
+        // PREPARE
+        final GitRepository huge = repo("huge", null, "2G");
+        final GitRepository critical = repo("critical", 1, "1K");
+        final GitRepository medium = repo("medium", null, "500M");
+        final GitCloneScheduler testee = new GitCloneScheduler(null);
+
+        // TEST
+        final List<GitRepository> result = testee
+                .schedule(Arrays.asList(huge, critical, medium), 2);
+
+        // VERIFY
+        assertThat(result).containsExactly(critical, huge, medium);
+
+    }
+
+    @Test
+    public void testScheduleRecordedSizes() {
+
+        // PREPARE
+        final File file = new File("target/git-clone-scheduler-test.properties");
+        file.delete();
+        final GitCloneStats stats = new GitCloneStats(file);
+        final GitRepository a = repo("a", null, null);
+        final GitRepository b = repo("b", null, null);
+        final GitRepository c = repo("c", null, null);
+        stats.recordBytes(a.getUrl(), 100);
+        stats.recordBytes(b.getUrl(), 300);
+        stats.save();
+        final GitCloneScheduler testee = new GitCloneScheduler(
+                new GitCloneStats(file));
+
+        // TEST
+        final List<GitRepository> result = testee
+                .schedule(Arrays.asList(a, b, c), 2);
+
+        // VERIFY (Unknown size is assumed to be the average)
+        assertThat(result).containsExactly(b, c, a);
+
+    }
+
+    @Test
+    public void testParseSize() {
+        assertThat(GitRepository.parseSize("1024")).isEqualTo(1024L);
+        assertThat(GitRepository.parseSize("2k")).isEqualTo(2048L);
+        assertThat(GitRepository.parseSize("3M")).isEqualTo(3145728L);
+        assertThat(GitRepository.parseSize("1G")).isEqualTo(1073741824L);
+    }
+
+    private static GitRepository repo(final String name, final Integer priority,
+            final String sizeHint) {
+        final GitRepository repository = new GitRepository(
+                "git@bitbucket.org:a/" + name + ".git");
+        repository.setPriority(priority);
+        repository.setSizeHint(sizeHint);
+        return repository;
+    }
+
+}
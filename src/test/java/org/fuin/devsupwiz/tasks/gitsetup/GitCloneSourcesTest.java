@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test for the {@link GitCloneSources} class.
+ */
+public class GitCloneSourcesTest {
+
+    @Test
+    public void testCreateCloneCommand() {
+
+        // PREPARE
+        final List<GitRepository> repositories = new ArrayList<>();
+        final GitRepository plain = new GitRepository(
+                "git@bitbucket.org:my_account/my-project.git");
+        final GitRepository special = new GitRepository(
+                "git@bitbucket.org:my_account/another-one.git", 10, "tree:0",
+                false);
+        repositories.add(plain);
+        repositories.add(special);
+        final GitCloneTask task = new GitCloneTask("1", "target/git",
+                repositories);
+        task.setDepth(1);
+        task.setFilter("blob:none");
+        task.setSingleBranch(true);
+        final GitCloneSources testee = new GitCloneSources(task, null,
+                new GitCloneStats(new File("target/git-stats.properties")),
+                new CancellationToken(), progress -> {
+                });
+
+        // TEST & VERIFY
+        assertThat(testee.createCloneCommand(plain, null)).containsExactly(
+                "git", "clone", "-v", "--progress", "--depth", "1",
+                "--filter=blob:none", "--single-branch", "--",
+                "git@bitbucket.org:my_account/my-project.git");
+        assertThat(testee.createCloneCommand(special,
+                new File("/tmp/my mirror.git"))).containsExactly("git",
+                        "clone", "-v", "--progress", "--depth", "10",
+                        "--filter=tree:0", "--no-single-branch",
+                        "--reference", "/tmp/my mirror.git", "--dissociate",
+                        "--", "git@bitbucket.org:my_account/another-one.git");
+
+    }
+
+}
@@ -0,0 +1,708 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import org.apache.commons.io.FileUtils;
+import org.fuin.utils4j.JaxbUtils;
+import org.junit.Test;
+import org.xmlunit.builder.DiffBuilder;
+import org.xmlunit.diff.Diff;
+
+/**
+ * Test for the {@link GitCloneTask} class.
+ */
+public class GitCloneTaskTest {
+
+    @Test
+    public void testGetRepositoryName() {
+        assertThat(GitCloneTask.getRepositoryName(
+                "git@bitbucket.org:my_account/my-project.git"))
+                        .isEqualTo("my-project");
+        assertThat(GitCloneTask
+                .getRepositoryName("https://github.com/fuinorg/units4j/"))
+                        .isEqualTo("units4j");
+        assertThat(GitCloneTask.getRepositoryName("git@example.com:repo.git"))
+                .isEqualTo("repo");
+    }
+
+    @Test
+    public void testSameUrl() {
+        assertThat(GitCloneTask.sameUrl("git@bitbucket.org:a/b.git",
+                "git@bitbucket.org:a/b")).isTrue();
+        assertThat(GitCloneTask.sameUrl("https://github.com/a/b",
+                "https://github.com/a/b/")).isTrue();
+        assertThat(GitCloneTask.sameUrl("git@bitbucket.org:a/b.git",
+                "git@bitbucket.org:a/c.git")).isFalse();
+        assertThat(GitCloneTask.sameUrl("git@bitbucket.org:a/b.git", null))
+                .isFalse();
+    }
+
+    @Test
+    public void testGetTimeout() {
+
+        // PREPARE
+        final GitRepository fixed = new GitRepository("file:///tmp/fixed.git");
+        fixed.setTimeout(30);
+        final GitRepository learned = new GitRepository(
+                "file:///tmp/learned.git");
+        final GitRepository small = new GitRepository("file:///tmp/small.git");
+        final GitRepository unknown = new GitRepository(
+                "file:///tmp/unknown.git");
+        final GitCloneStats stats = new GitCloneStats(
+                new File("target/git-clone-timeout-test.properties"));
+        stats.recordBytes(fixed.getUrl(), 1000);
+        stats.recordMillis(fixed.getUrl(), 600000);
+        stats.recordBytes(learned.getUrl(), 1000);
+        stats.recordMillis(learned.getUrl(), 600000);
+        stats.recordBytes(small.getUrl(), 1000);
+        stats.recordMillis(small.getUrl(), 1000);
+        final GitCloneTask testee = new GitCloneTask("1", "target/git",
+                Arrays.asList(fixed, learned, small, unknown));
+
+        // TEST & VERIFY
+        assertThat(testee.getTimeout(fixed, stats)).isEqualTo(30);
+        assertThat(testee.getTimeout(learned, stats)).isEqualTo(2400);
+        assertThat(testee.getTimeout(small, stats)).isEqualTo(300);
+        assertThat(testee.getTimeout(unknown, stats)).isEqualTo(0);
+        assertThat(testee.getStallTimeout())
+                .isEqualTo(GitCloneTask.DEFAULT_STALL_TIMEOUT);
+
+    }
+
+    @Test
+    public void testExecuteSync() throws IOException {
+
+        // PREPARE
+        final File baseDir = new File("target/git-clone-sync-test")
+                .getAbsoluteFile();
+        FileUtils.deleteDirectory(baseDir);
+        final File originDir = new File(baseDir, "origin");
+        final String url = GitTestUtils.createOrigin(originDir);
+        final File targetDir = new File(baseDir, "git");
+        final GitCloneTask first = new GitCloneTask("1", targetDir.getPath(),
+                Collections.singletonList(new GitRepository(url)));
+        first.setSync(true);
+        first.setStatsFile(new File(baseDir, "stats.properties").getPath());
+        first.execute();
+        assertThat(new File(targetDir, "origin/README.md")).exists();
+        GitTestUtils.git(originDir, "-c", "user.name=Test", "-c",
+                "user.email=test@fuin.org", "commit", "-q", "--allow-empty",
+                "-m", "New");
+        final String head = ProcessCommand.query(
+                Arrays.asList("git", "rev-parse", "HEAD"), originDir, 10);
+        final GitCloneTask testee = new GitCloneTask("1", targetDir.getPath(),
+                Collections.singletonList(new GitRepository(url)));
+        testee.setSync(true);
+        testee.setStatsFile(new File(baseDir, "stats.properties").getPath());
+
+        // TEST (Second run fetches the existing clone instead of failing)
+        testee.execute();
+
+        // VERIFY
+        assertThat(testee.getResults().get(0).isSuccess()).isTrue();
+        assertThat(ProcessCommand.query(
+                Arrays.asList("git", "rev-parse", "origin/HEAD"),
+                new File(targetDir, "origin"), 10)).isEqualTo(head);
+
+    }
+
+    @Test
+    public void testExecuteExistingWithoutSync() throws IOException {
+
+        // PREPARE
+        final File baseDir = new File("target/git-clone-existing-test")
+                .getAbsoluteFile();
+        FileUtils.deleteDirectory(baseDir);
+        final String url = GitTestUtils
+                .createOrigin(new File(baseDir, "origin"));
+        final File targetDir = new File(baseDir, "git");
+        assertThat(new File(targetDir, "origin").mkdirs()).isTrue();
+        final GitCloneTask testee = new GitCloneTask("1", targetDir.getPath(),
+                Collections.singletonList(new GitRepository(url)));
+        testee.setAttempts(3);
+        testee.setRetryDelay(600);
+        testee.setStatsFile(new File(baseDir, "stats.properties").getPath());
+
+        // TEST
+        assertThatThrownBy(() -> testee.execute())
+                .hasMessageContaining("exists - enable sync");
+
+        // VERIFY
+        final GitCloneResult result = testee.getResults().get(0);
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(result.getAttempts()).isEqualTo(0);
+
+    }
+
+    @Test
+    public void testExecuteFailureIsolation() throws IOException {
+
+        // PREPARE
+        final File baseDir = new File("target/git-clone-retry-test")
+                .getAbsoluteFile();
+        FileUtils.deleteDirectory(baseDir);
+        final String url = GitTestUtils.createOrigin(new File(baseDir, "origin"));
+        final GitRepository missing = new GitRepository(
+                "file://" + new File(baseDir, "missing").getAbsolutePath());
+        final GitRepository existing = new GitRepository(url);
+        final File targetDir = new File(baseDir, "git");
+        final GitCloneTask testee = new GitCloneTask("1", targetDir.getPath(),
+                Arrays.asList(missing, existing));
+        testee.setAttempts(2);
+        testee.setRetryDelay(0);
+        testee.setStatsFile(new File(baseDir, "stats.properties").getPath());
+
+        // TEST
+        assertThatThrownBy(() -> testee.execute())
+                .hasMessageContaining("Failed to clone 1 of 2");
+
+        // VERIFY
+        assertThat(new File(targetDir, "origin/README.md")).exists();
+        assertThat(new File(targetDir, "missing")).doesNotExist();
+        final List<GitCloneResult> results = testee.getResults();
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0).getRepository()).isSameAs(missing);
+        assertThat(results.get(0).isSuccess()).isFalse();
+        assertThat(results.get(0).getAttempts()).isEqualTo(2);
+        assertThat(results.get(0).getRetries()).isEqualTo(1);
+        assertThat(results.get(1).getRepository()).isSameAs(existing);
+        assertThat(results.get(1).isSuccess()).isTrue();
+        assertThat(results.get(1).getAttempts()).isEqualTo(1);
+        assertThat(results.get(1).getBytes()).isGreaterThan(0L);
+
+        // TEST (Re-run only retries the failed repository)
+        GitTestUtils.createOrigin(new File(baseDir, "missing"));
+        testee.execute();
+
+        // VERIFY
+        assertThat(testee.getResults().get(0).isSuccess()).isTrue();
+        assertThat(testee.getResults().get(1)).isSameAs(results.get(1));
+
+    }
+
+    @Test
+    public void testExecuteCancel() throws IOException {
+
+        // PREPARE
+        final File baseDir = new File("target/git-clone-cancel-test")
+                .getAbsoluteFile();
+        FileUtils.deleteDirectory(baseDir);
+        final GitRepository first = new GitRepository(
+                GitTestUtils.createOrigin(new File(baseDir, "first")));
+        final GitRepository second = new GitRepository(
+                GitTestUtils.createOrigin(new File(baseDir, "second")));
+        final GitRepository third = new GitRepository(
+                GitTestUtils.createOrigin(new File(baseDir, "third")));
+        final File targetDir = new File(baseDir, "git");
+        final GitCloneTask testee = new GitCloneTask("1", targetDir.getPath(),
+                Arrays.asList(first, second, third));
+        testee.setParallelism(1);
+        testee.setStatsFile(new File(baseDir, "stats.properties").getPath());
+        final GitCloneListener canceller = new GitCloneListener() {
+            @Override
+            public void started(final GitRepository repository) {
+                if (repository == second) {
+                    testee.cancel();
+                }
+            }
+
+            @Override
+            public void progress(final GitCloneProgress progress) {
+                // Not used
+            }
+
+            @Override
+            public void finished(final GitCloneResult result) {
+                // Not used
+            }
+        };
+        testee.addListener(canceller);
+
+        // TEST
+        assertThatThrownBy(() -> testee.execute())
+                .isInstanceOf(CancellationException.class)
+                .hasMessageContaining("Cancelled after 1 of");
+
+        // VERIFY
+        assertThat(testee.isCancelled()).isTrue();
+        assertThat(new File(targetDir, "first/README.md")).exists();
+        assertThat(new File(targetDir, "second")).doesNotExist();
+        assertThat(new File(targetDir, "third")).doesNotExist();
+        final List<GitCloneResult> results = testee.getResults();
+        assertThat(results.get(0).isSuccess()).isTrue();
+        assertThat(results.get(1).isSuccess()).isFalse();
+        assertThat(results.get(1).getMessage()).isEqualTo("Cancelled");
+
+        // TEST (Re-run only processes the remaining repositories)
+        testee.removeListener(canceller);
+        testee.execute();
+
+        // VERIFY
+        assertThat(testee.isCancelled()).isFalse();
+        assertThat(testee.getResults().get(0)).isSameAs(results.get(0));
+        assertThat(new File(targetDir, "second/README.md")).exists();
+        assertThat(new File(targetDir, "third/README.md")).exists();
+
+    }
+
+    @Test
+    public void testExecuteWarmUp() throws IOException {
+
+        // PREPARE
+        final File baseDir = new File("target/git-clone-warm-up-test")
+                .getAbsoluteFile();
+        FileUtils.deleteDirectory(baseDir);
+        final File originDir = new File(baseDir, "origin");
+        final String url = GitTestUtils.createOrigin(originDir);
+        FileUtils.writeStringToFile(new File(originDir, "pom.xml"),
+                "<project/>", Charset.forName("utf-8"));
+        GitTestUtils.git(originDir, "add", ".");
+        GitTestUtils.git(originDir, "-c", "user.name=Test", "-c",
+                "user.email=test@fuin.org", "commit", "-q", "-m", "Pom");
+        final String other = GitTestUtils
+                .createOrigin(new File(baseDir, "other"));
+        final File log = new File(baseDir, "mvn.log");
+        final File mvn = MavenWarmUpTest.createFakeMaven(baseDir, log,
+                "3.9.6");
+        final File targetDir = new File(baseDir, "git");
+        final GitCloneTask testee = new GitCloneTask("1", targetDir.getPath(),
+                Arrays.asList(new GitRepository(url), new GitRepository(other)));
+        testee.setStatsFile(new File(baseDir, "stats.properties").getPath());
+        testee.setWarmUp(true);
+        testee.setMavenExecutable(mvn.getPath());
+        testee.setMavenSettings(new File(baseDir, "settings.xml").getPath());
+
+        // TEST
+        testee.execute();
+
+        // VERIFY
+        final List<String> lines = FileUtils.readLines(log,
+                Charset.forName("utf-8"));
+        assertThat(lines).hasSize(1);
+        assertThat(lines.get(0)).startsWith(new File(targetDir, "origin")
+                + " -B -s " + new File(baseDir, "settings.xml"));
+
+    }
+
+    @Test
+    public void testExecuteBundle() throws IOException {
+
+        // PREPARE
+        final File baseDir = new File("target/git-clone-bundle-test")
+                .getAbsoluteFile();
+        FileUtils.deleteDirectory(baseDir);
+        final File originDir = new File(baseDir, "origin");
+        final String url = GitTestUtils.createOrigin(originDir);
+        final File bundle = new File(baseDir, "origin.bundle");
+        GitTestUtils.git(originDir, "bundle", "create", bundle.getPath(),
+                "--all");
+        FileUtils.writeStringToFile(new File(originDir, "NEW.md"), "New",
+                Charset.forName("utf-8"));
+        GitTestUtils.git(originDir, "add", ".");
+        GitTestUtils.git(originDir, "-c", "user.name=Test", "-c",
+                "user.email=test@fuin.org", "commit", "-q", "-m", "New");
+        final GitRepository repository = new GitRepository(url);
+        repository.setBundle(bundle.getPath());
+        final GitRepository missing = new GitRepository(
+                GitTestUtils.createOrigin(new File(baseDir, "other")));
+        missing.setBundle(new File(baseDir, "missing.bundle").getPath());
+        final File targetDir = new File(baseDir, "git");
+        final GitCloneTask testee = new GitCloneTask("1", targetDir.getPath(),
+                Arrays.asList(repository, missing));
+        testee.setStatsFile(new File(baseDir, "stats.properties").getPath());
+
+        // TEST
+        testee.execute();
+
+        // VERIFY
+        final File cloneDir = new File(targetDir, "origin");
+        assertThat(new File(cloneDir, "NEW.md")).exists();
+        assertThat(ProcessCommand.query(
+                Arrays.asList("git", "config", "--get", "remote.origin.url"),
+                cloneDir, 10)).isEqualTo(url);
+        assertThat(new File(targetDir, "other/README.md")).exists();
+        final GitCloneStats stats = new GitCloneStats(
+                new File(baseDir, "stats.properties"));
+        assertThat(stats.getBytes(url)).isNotNull();
+        assertThat(stats.getMillis(url)).isNull();
+        assertThat(stats.getMillis(missing.getUrl())).isNotNull();
+
+    }
+
+    @Test
+    public void testExecuteSparse() throws IOException {
+
+        // PREPARE
+        final File baseDir = new File("target/git-clone-sparse-test")
+                .getAbsoluteFile();
+        FileUtils.deleteDirectory(baseDir);
+        final File originDir = new File(baseDir, "origin");
+        final String url = GitTestUtils.createOrigin(originDir);
+        for (final String name : new String[] { "a/A.md", "b/B.md",
+                "c/d/D.md" }) {
+            FileUtils.writeStringToFile(new File(originDir, name), name,
+                    Charset.forName("utf-8"));
+        }
+        GitTestUtils.git(originDir, "add", ".");
+        GitTestUtils.git(originDir, "-c", "user.name=Test", "-c",
+                "user.email=test@fuin.org", "commit", "-q", "-m", "Dirs");
+        final GitRepository repository = new GitRepository(url);
+        repository.setSparseDirs(Arrays.asList("a", "c/d"));
+        final File targetDir = new File(baseDir, "git");
+        final GitCloneTask testee = new GitCloneTask("1", targetDir.getPath(),
+                Collections.singletonList(repository));
+        testee.setStatsFile(new File(baseDir, "stats.properties").getPath());
+        assertThat(new GitCloneSources(testee, null,
+                new GitCloneStats(new File(baseDir, "stats.properties")),
+                new CancellationToken(), progress -> {
+                }).createCloneCommand(repository, null)).containsExactly(
+                        "git", "clone", "-v", "--progress", "--sparse", "--",
+                        url);
+
+        // TEST
+        testee.execute();
+
+        // VERIFY
+        final File cloneDir = new File(targetDir, "origin");
+        assertThat(new File(cloneDir, "README.md")).exists();
+        assertThat(new File(cloneDir, "a/A.md")).exists();
+        assertThat(new File(cloneDir, "c/d/D.md")).exists();
+        assertThat(new File(cloneDir, "b")).doesNotExist();
+
+    }
+
+    @Test
+    public void testExecuteSparseInvalid() throws IOException {
+
+        // PREPARE
+        final File baseDir = new File("target/git-clone-sparse-invalid-test")
+                .getAbsoluteFile();
+        FileUtils.deleteDirectory(baseDir);
+        final String url = GitTestUtils
+                .createOrigin(new File(baseDir, "origin"));
+        final GitRepository repository = new GitRepository(url);
+        repository.setSparseDirs(Arrays.asList("a", "b;touch ../pwned"));
+        final File targetDir = new File(baseDir, "git");
+        final GitCloneTask testee = new GitCloneTask("1", targetDir.getPath(),
+                Collections.singletonList(repository));
+        testee.setStatsFile(new File(baseDir, "stats.properties").getPath());
+
+        // TEST
+        assertThatThrownBy(() -> testee.execute())
+                .hasMessageContaining("Invalid sparse directory");
+
+        // VERIFY
+        assertThat(new File(targetDir, "origin")).doesNotExist();
+        assertThat(new File(targetDir, "pwned")).doesNotExist();
+
+    }
+
+    @Test
+    public void testExecuteOptimize() throws IOException {
+
+        // PREPARE
+        final File baseDir = new File("target/git-clone-optimize-test")
+                .getAbsoluteFile();
+        FileUtils.deleteDirectory(baseDir);
+        final String url = GitTestUtils.createOrigin(new File(baseDir, "origin"));
+        final File targetDir = new File(baseDir, "git");
+        final File cloneDir = new File(targetDir, "origin");
+        final GitCloneTask testee = new GitCloneTask("1", targetDir.getPath(),
+                Collections.singletonList(new GitRepository(url)));
+        testee.setOptimize(true);
+        testee.setStatsFile(new File(baseDir, "stats.properties").getPath());
+
+        try {
+
+            // TEST
+            testee.execute();
+
+            // VERIFY
+            assertThat(new File(cloneDir, ".git/objects/info/commit-graph"))
+                    .exists();
+            assertThat(new File(cloneDir,
+                    ".git/objects/pack/multi-pack-index")).exists();
+            assertThat(ProcessCommand.query(Arrays.asList("git", "config",
+                    "--get", "core.untrackedCache"), cloneDir, 10))
+                            .isEqualTo("true");
+
+        } finally {
+            ProcessCommand.execute(
+                    Arrays.asList("git", "maintenance", "unregister"),
+                    cloneDir, 10);
+        }
+
+    }
+
+    @Test
+    public void testExecuteSeed() throws IOException {
+
+        // PREPARE
+        final File baseDir = new File("target/git-clone-seed-test")
+                .getAbsoluteFile();
+        FileUtils.deleteDirectory(baseDir);
+        final File originDir = new File(baseDir, "origin");
+        final String url = GitTestUtils.createOrigin(originDir);
+        final File seedDir = new File(baseDir, "seed");
+        assertThat(seedDir.mkdirs()).isTrue();
+        GitTestUtils.git(seedDir, "clone", "-q", url);
+        FileUtils.writeStringToFile(new File(originDir, "NEW.md"), "New",
+                Charset.forName("utf-8"));
+        GitTestUtils.git(originDir, "add", ".");
+        GitTestUtils.git(originDir, "-c", "user.name=Test", "-c",
+                "user.email=test@fuin.org", "commit", "-q", "-m", "New");
+        final File targetDir = new File(baseDir, "git");
+        final GitCloneTask testee = new GitCloneTask("1", targetDir.getPath(),
+                Collections.singletonList(new GitRepository(url)));
+        testee.setSeedDir(seedDir.getPath());
+        testee.setStatsFile(new File(baseDir, "stats.properties").getPath());
+
+        // TEST
+        testee.execute();
+
+        // VERIFY
+        final File cloneDir = new File(targetDir, "origin");
+        assertThat(new File(cloneDir, "NEW.md")).exists();
+        assertThat(ProcessCommand.query(
+                Arrays.asList("git", "config", "--get", "remote.origin.url"),
+                cloneDir, 10)).isEqualTo(url);
+        final File[] packs = new File(cloneDir, ".git/objects/pack")
+                .listFiles((dir, name) -> name.endsWith(".pack"));
+        assertThat(packs).isNotEmpty();
+        assertThat((Integer) Files.getAttribute(packs[0].toPath(),
+                "unix:nlink")).isGreaterThan(1);
+
+    }
+
+    @Test
+    public void testExecuteSeedExistingClone() throws IOException {
+
+        // PREPARE
+        final File baseDir = new File("target/git-clone-seed-existing-test")
+                .getAbsoluteFile();
+        FileUtils.deleteDirectory(baseDir);
+        final String url = GitTestUtils
+                .createOrigin(new File(baseDir, "origin"));
+        final File seedDir = new File(baseDir, "seed");
+        assertThat(seedDir.mkdirs()).isTrue();
+        GitTestUtils.git(seedDir, "clone", "-q", url);
+        final File targetDir = new File(baseDir, "git");
+        assertThat(targetDir.mkdirs()).isTrue();
+        GitTestUtils.git(targetDir, "clone", "-q", url);
+        final File work = new File(targetDir, "origin/WORK.md");
+        FileUtils.writeStringToFile(work, "Not committed",
+                Charset.forName("utf-8"));
+        final GitCloneTask testee = new GitCloneTask("1", targetDir.getPath(),
+                Collections.singletonList(new GitRepository(url)));
+        testee.setSeedDir(seedDir.getPath());
+        testee.setAttempts(1);
+        testee.setStatsFile(new File(baseDir, "stats.properties").getPath());
+
+        // TEST
+        assertThatThrownBy(() -> testee.execute())
+                .hasMessageContaining("Failed to clone 1 of 1");
+
+        // VERIFY
+        assertThat(work).exists();
+
+    }
+
+    @Test
+    public void testExecuteMirrorStalled() throws IOException {
+
+        // PREPARE
+        final File baseDir = new File("target/git-clone-mirror-stalled-test")
+                .getAbsoluteFile();
+        FileUtils.deleteDirectory(baseDir);
+        final String url = GitTestUtils
+                .createOrigin(new File(baseDir, "origin"));
+        final File cacheDir = new File(baseDir, "mirrors");
+        final File mirrorDir = new GitMirrorCache(cacheDir, Long.MAX_VALUE)
+                .getMirrorDir(url);
+        assertThat(cacheDir.mkdirs()).isTrue();
+        GitTestUtils.git(cacheDir, "clone", "-q", "--mirror", url,
+                mirrorDir.getName());
+        final File targetDir = new File(baseDir, "git");
+        final GitCloneTask testee = new GitCloneTask("1", targetDir.getPath(),
+                Collections.singletonList(new GitRepository(url)));
+        testee.setMirrorCache(cacheDir.getPath());
+        testee.setStallTimeout(1);
+        testee.setAttempts(1);
+        testee.setStatsFile(new File(baseDir, "stats.properties").getPath());
+
+        // Server that accepts the connection, but never answers
+        try (final ServerSocket server = new ServerSocket(0)) {
+            GitTestUtils.git(mirrorDir, "remote", "set-url", "origin",
+                    "git://127.0.0.1:" + server.getLocalPort() + "/origin");
+
+            // TEST
+            testee.execute();
+
+        }
+
+        // VERIFY
+        assertThat(new File(targetDir, "origin/README.md")).exists();
+        assertThat(testee.getResults().get(0).isSuccess()).isTrue();
+
+    }
+
+    @Test
+    public void testExecuteManifest() throws IOException {
+
+        // PREPARE
+        final File baseDir = new File("target/git-clone-manifest-test")
+                .getAbsoluteFile();
+        FileUtils.deleteDirectory(baseDir);
+        final StringBuilder sb = new StringBuilder("# Generated\n");
+        for (final String name : new String[] { "app1", "app2", "lib1",
+                "old-archive" }) {
+            sb.append(GitTestUtils.createOrigin(new File(baseDir, name)))
+                    .append('\n');
+        }
+        final File manifest = new File(baseDir, "manifest.txt");
+        FileUtils.writeStringToFile(manifest, sb.toString(),
+                Charset.forName("utf-8"));
+        final String inline = GitTestUtils
+                .createOrigin(new File(baseDir, "inline"));
+        final File targetDir = new File(baseDir, "git");
+        final GitCloneTask testee = new GitCloneTask("1", targetDir.getPath(),
+                Collections.singletonList(new GitRepository(inline)));
+        testee.setManifest(manifest.getPath());
+        testee.setInclude("*/app?,*/lib*,*/old-*,*/inline");
+        testee.setExclude("regex:archive$");
+        testee.setParallelism(1);
+        testee.setStatsFile(new File(baseDir, "stats.properties").getPath());
+
+        // TEST
+        testee.execute();
+
+        // VERIFY
+        assertThat(new File(targetDir, "inline")).exists();
+        assertThat(new File(targetDir, "app1")).exists();
+        assertThat(new File(targetDir, "app2")).exists();
+        assertThat(new File(targetDir, "lib1")).exists();
+        assertThat(new File(targetDir, "old-archive")).doesNotExist();
+        final List<GitCloneResult> results = testee.getResults();
+        assertThat(results).hasSize(4);
+        assertThat(results.get(0).getRepository().getUrl()).isEqualTo(inline);
+
+    }
+
+    @Test
+    public void testExecutePreflight() throws IOException {
+
+        // PREPARE
+        final File baseDir = new File("target/git-clone-preflight-test")
+                .getAbsoluteFile();
+        FileUtils.deleteDirectory(baseDir);
+        final GitRepository repository = new GitRepository(
+                GitTestUtils.createOrigin(new File(baseDir, "origin")));
+        repository.setSizeHint("99999T");
+        final File targetDir = new File(baseDir, "git");
+        final GitCloneTask testee = new GitCloneTask("1", targetDir.getPath(),
+                Collections.singletonList(repository));
+        testee.setStatsFile(new File(baseDir, "stats.properties").getPath());
+
+        // TEST & VERIFY
+        assertThatThrownBy(() -> testee.execute())
+                .hasMessageContaining("Not enough disk space");
+        assertThat(new File(targetDir, "origin")).doesNotExist();
+
+        // TEST & VERIFY (Check can be disabled)
+        testee.setPreflight(false);
+        testee.execute();
+        assertThat(new File(targetDir, "origin/README.md")).exists();
+
+    }
+
+    @Test
+    public void testMarshal() {
+
+        // PREPARE
+        final List<GitRepository> repositories = new ArrayList<>();
+        repositories.add(new GitRepository("git@bitbucket.org:a/b.git"));
+        repositories.add(new GitRepository("git@bitbucket.org:a/c.git", 1,
+                "blob:none", true));
+        final GitCloneTask testee = new GitCloneTask("x", "~/git",
+                repositories);
+        testee.setParallelism(2);
+
+        // TEST
+        final String xml = JaxbUtils.marshal(testee, GitCloneTask.class);
+
+        // VERIFY
+        final Diff documentDiff = DiffBuilder.compare(JaxbUtils.XML_PREFIX
+                + "<git-clone id=\"x\" target-dir=\"~/git\" parallelism=\"2\">"
+                + "<repository>git@bitbucket.org:a/b.git</repository>"
+                + "<repository depth=\"1\" filter=\"blob:none\" single-branch=\"true\">"
+                + "git@bitbucket.org:a/c.git</repository>" + "</git-clone>")
+                .withTest(xml).ignoreWhitespace().build();
+
+        assertThat(documentDiff.hasDifferences())
+                .describedAs(documentDiff.toString()).isFalse();
+
+    }
+
+    @Test
+    public void testUnmarshal() {
+
+        // PREPARE
+        final String xml = "<git-clone id=\"x\" target-dir=\"~/git\" depth=\"1\">"
+                + "<repository filter=\"blob:none\">git@bitbucket.org:a/b.git</repository>"
+                + "<repository> git@bitbucket.org:a/c.git "
+                + "<sparse><dir>x</dir><dir>y/z</dir></sparse></repository>"
+                + "</git-clone>";
+
+        // TEST
+        final GitCloneTask testee = JaxbUtils.unmarshal(xml,
+                GitCloneTask.class);
+
+        // VERIFY
+        assertThat(testee).isNotNull();
+        assertThat(testee.getId()).isEqualTo("x");
+        assertThat(testee.getDepth()).isEqualTo(1);
+        assertThat(testee.getRepositories()).hasSize(2);
+        final GitRepository repository = testee.getRepositories().get(0);
+        assertThat(repository.getUrl()).isEqualTo("git@bitbucket.org:a/b.git");
+        assertThat(repository.getName()).isEqualTo("b");
+        assertThat(repository.getFilter()).isEqualTo("blob:none");
+        assertThat(repository.getDepth()).isNull();
+        assertThat(repository.getSparseDirs()).isEmpty();
+        final GitRepository sparse = testee.getRepositories().get(1);
+        assertThat(sparse.getUrl()).isEqualTo("git@bitbucket.org:a/c.git");
+        assertThat(sparse.getSparseDirs()).containsExactly("x", "y/z");
+        assertThat(testee.getResource()).isNotEmpty();
+        assertThat(testee.getFxml()).isNotEmpty();
+
+    }
+
+}
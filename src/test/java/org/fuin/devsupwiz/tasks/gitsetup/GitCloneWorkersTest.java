@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Test for the {@link GitCloneWorkers} class.
+ */
+public class GitCloneWorkersTest {
+
+    @Test
+    public void testSubmit() {
+
+        // PREPARE
+        final GitRepository ok = new GitRepository("git@host:a/ok.git");
+        final GitRepository failed = new GitRepository("git@host:a/failed.git");
+        final GitRepository broken = new GitRepository("git@host:a/broken.git");
+        final GitCloneWorkers testee = new GitCloneWorkers(2, "test",
+                repository -> {
+                    if (repository == broken) {
+                        throw new IllegalStateException("Broken");
+                    }
+                    return new GitCloneResult(repository, repository == ok, 1,
+                            0, 0, repository == ok ? null : "Exit code 128");
+                }, new CancellationToken());
+
+        // TEST
+        try {
+            testee.submit(ok);
+            testee.submit(failed);
+            testee.submit(broken);
+            testee.await();
+        } finally {
+            testee.shutdown();
+        }
+
+        // VERIFY
+        assertThat(testee.getCount()).isEqualTo(3);
+        assertThat(testee.getProcessed()).containsExactly(ok);
+        assertThat(testee.getFailures()).containsExactlyInAnyOrder(
+                failed + ": Exit code 128",
+                broken + ": java.lang.IllegalStateException: Broken");
+
+    }
+
+    @Test
+    public void testSubmitCancelled() {
+
+        // PREPARE
+        final CancellationToken token = new CancellationToken();
+        final GitCloneWorkers testee = new GitCloneWorkers(1, "test",
+                repository -> new GitCloneResult(repository, true, 1, 0, 0,
+                        null),
+                token);
+        token.cancel();
+
+        // TEST
+        try {
+            testee.submit(new GitRepository("git@host:a/ok.git"));
+            testee.await();
+        } finally {
+            testee.shutdown();
+        }
+
+        // VERIFY
+        assertThat(testee.getCount()).isEqualTo(0);
+        assertThat(testee.getProcessed()).isEmpty();
+
+    }
+
+}
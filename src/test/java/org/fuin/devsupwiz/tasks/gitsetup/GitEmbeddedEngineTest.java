@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+/**
+ * Test for the {@link GitEmbeddedEngine} class.
+ */
+public class GitEmbeddedEngineTest {
+
+    @Test
+    public void testUnsupportedOption() {
+
+        // PREPARE
+        final GitRepository plain = new GitRepository("file:///tmp/a.git");
+        final GitRepository sparse = new GitRepository("file:///tmp/b.git");
+        sparse.setSparseDirs(Collections.singletonList("x"));
+
+        // TEST & VERIFY
+        assertThat(GitEmbeddedEngine.unsupportedOption(plain, null, null,
+                null)).isNull();
+        assertThat(GitEmbeddedEngine.unsupportedOption(plain, null, null,
+                false)).isNull();
+        assertThat(GitEmbeddedEngine.unsupportedOption(plain, 1, null, null))
+                .isEqualTo("depth");
+        assertThat(GitEmbeddedEngine.unsupportedOption(plain, null,
+                "blob:none", null)).isEqualTo("filter");
+        assertThat(GitEmbeddedEngine.unsupportedOption(plain, null, null,
+                true)).isEqualTo("single-branch");
+        assertThat(GitEmbeddedEngine.unsupportedOption(sparse, null, null,
+                null)).isEqualTo("sparse");
+
+    }
+
+    @Test
+    public void testExecuteEmbedded() throws IOException {
+
+        // PREPARE
+        final File baseDir = new File("target/git-embedded-engine-test")
+                .getAbsoluteFile();
+        FileUtils.deleteDirectory(baseDir);
+        final File originDir = new File(baseDir, "origin");
+        final String url = GitTestUtils.createOrigin(originDir);
+        final File targetDir = new File(baseDir, "git");
+        final GitCloneTask testee = createTask(baseDir, url);
+        final List<GitCloneProgress> progress = new ArrayList<>();
+        testee.addListener(new GitCloneListener() {
+            @Override
+            public void started(final GitRepository repository) {
+                // Not used
+            }
+
+            @Override
+            public void progress(final GitCloneProgress p) {
+                progress.add(p);
+            }
+
+            @Override
+            public void finished(final GitCloneResult result) {
+                // Not used
+            }
+        });
+
+        // TEST
+        testee.execute();
+
+        // VERIFY
+        final File cloneDir = new File(targetDir, "origin");
+        assertThat(new File(cloneDir, "README.md")).exists();
+        assertThat(progress).isNotEmpty();
+        assertThat(ProcessCommand.query(
+                Arrays.asList("git", "config", "--get", "remote.origin.url"),
+                cloneDir, 10)).isEqualTo(url);
+
+        // TEST (Second run fetches)
+        FileUtils.writeStringToFile(new File(originDir, "NEW.md"), "New",
+                Charset.forName("utf-8"));
+        GitTestUtils.git(originDir, "add", ".");
+        GitTestUtils.git(originDir, "-c", "user.name=Test", "-c",
+                "user.email=test@fuin.org", "commit", "-q", "-m", "New");
+        createTask(baseDir, url).execute();
+
+        // VERIFY
+        final String branch = ProcessCommand.query(
+                Arrays.asList("git", "symbolic-ref", "--short", "HEAD"),
+                originDir, 10);
+        assertThat(ProcessCommand.query(
+                Arrays.asList("git", "rev-parse", "origin/" + branch),
+                cloneDir, 10)).isEqualTo(
+                        ProcessCommand.query(Arrays.asList("git", "rev-parse",
+                                "HEAD"), originDir, 10));
+
+    }
+
+    private static GitCloneTask createTask(final File baseDir,
+            final String url) {
+        final GitCloneTask task = new GitCloneTask("1",
+                new File(baseDir, "git").getPath(),
+                Collections.singletonList(new GitRepository(url)));
+        task.setEngine(GitCloneTask.ENGINE_EMBEDDED);
+        task.setSync(true);
+        task.setStatsFile(new File(baseDir, "stats.properties").getPath());
+        return task;
+    }
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+/**
+ * Test for the {@link GitManifestReader} class.
+ */
+public class GitManifestReaderTest {
+
+    @Test
+    public void testReadList() throws IOException {
+
+        // PREPARE
+        final File file = new File("target/git-manifest-test.txt");
+        FileUtils.writeStringToFile(file,
+                "# Team A\n" + "git@bitbucket.org:a/b.git\n" + "\n"
+                        + "  https://github.com/a/c  \n",
+                Charset.forName("utf-8"));
+
+        // TEST
+        try (final GitManifestReader testee = new GitManifestReader(file)) {
+
+            // VERIFY
+            assertThat(testee.next().getUrl())
+                    .isEqualTo("git@bitbucket.org:a/b.git");
+            assertThat(testee.next().getUrl())
+                    .isEqualTo("https://github.com/a/c");
+            assertThat(testee.next()).isNull();
+
+        }
+
+    }
+
+    @Test
+    public void testReadXml() throws IOException {
+
+        // PREPARE
+        final File file = new File("target/git-manifest-test.xml");
+        FileUtils.writeStringToFile(file, "<manifest>"
+                + "<repository>git@bitbucket.org:a/b.git</repository>"
+                + "<group><repository depth=\"1\">git@bitbucket.org:a/c.git"
+                + "<sparse><dir>x</dir></sparse></repository></group>"
+                + "</manifest>", Charset.forName("utf-8"));
+
+        // TEST
+        try (final GitManifestReader testee = new GitManifestReader(file)) {
+
+            // VERIFY
+            assertThat(testee.next().getUrl())
+                    .isEqualTo("git@bitbucket.org:a/b.git");
+            final GitRepository repository = testee.next();
+            assertThat(repository.getUrl())
+                    .isEqualTo("git@bitbucket.org:a/c.git");
+            assertThat(repository.getDepth()).isEqualTo(1);
+            assertThat(repository.getSparseDirs()).containsExactly("x");
+            assertThat(testee.next()).isNull();
+
+        }
+
+    }
+
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for the {@link GitMirrorCache} class.
+ */
+public class GitMirrorCacheTest {
+
+    private File baseDir;
+
+    private String url;
+
+    @Before
+    public void setup() throws IOException {
+        baseDir = new File("target/git-mirror-cache-test").getAbsoluteFile();
+        FileUtils.deleteDirectory(baseDir);
+        url = GitTestUtils.createOrigin(new File(baseDir, "origin"));
+    }
+
+    @Test
+    public void testAcquire() throws IOException {
+
+        // PREPARE
+        final GitMirrorCache testee = new GitMirrorCache(
+                new File(baseDir, "mirrors"), Long.MAX_VALUE);
+
+        // TEST
+        try (final GitMirrorCache.Mirror mirror = testee.acquire(url)) {
+
+            // VERIFY
+            assertThat(mirror.getDir()).isEqualTo(testee.getMirrorDir(url));
+            assertThat(new File(mirror.getDir(), "HEAD")).exists();
+        }
+
+        // Second call only updates the existing mirror
+        try (final GitMirrorCache.Mirror mirror = testee.acquire(url)) {
+            assertThat(new File(mirror.getDir(), "HEAD")).exists();
+        }
+
+    }
+
+    @Test
+    public void testEvict() throws IOException {
+
+        // PREPARE
+        final File mirrorsDir = new File(baseDir, "mirrors");
+        new GitMirrorCache(mirrorsDir, Long.MAX_VALUE).acquire(url).close();
+        final GitMirrorCache testee = new GitMirrorCache(mirrorsDir, 0);
+        final File mirrorDir = testee.getMirrorDir(url);
+
+        // TEST & VERIFY (Locked mirrors are never removed)
+        try (final GitMirrorCache.Mirror mirror = testee.acquire(url)) {
+            testee.evict();
+            assertThat(mirrorDir).exists();
+        }
+
+        // TEST & VERIFY (Unused mirrors exceeding the limit are removed)
+        testee.evict();
+        assertThat(mirrorDir).doesNotExist();
+
+    }
+
+    @Test
+    public void testKey() {
+        assertThat(GitMirrorCache.key("git@bitbucket.org:a/my-project.git"))
+                .startsWith("my-project-");
+        assertThat(GitMirrorCache.key("git@bitbucket.org:a/my-project.git"))
+                .isNotEqualTo(GitMirrorCache.key("git@github.com:a/my-project.git"));
+    }
+
+}
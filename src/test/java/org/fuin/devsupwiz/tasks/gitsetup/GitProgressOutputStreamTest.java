@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test for the {@link GitProgressOutputStream} class.
+ */
+public class GitProgressOutputStreamTest {
+
+    private static final GitRepository REPO = new GitRepository(
+            "git@bitbucket.org:a/b.git");
+
+    @Test
+    public void testParseReceiving() {
+
+        // TEST
+        final GitCloneProgress progress = GitProgressOutputStream.parse(REPO,
+                "Receiving objects:  45% (450/1000), 1.50 MiB | 2.00 MiB/s");
+
+        // VERIFY
+        assertThat(progress).isNotNull();
+        assertThat(progress.getRepository()).isSameAs(REPO);
+        assertThat(progress.getPhase()).isEqualTo("Receiving objects");
+        assertThat(progress.getPercent()).isEqualTo(45);
+        assertThat(progress.getCurrent()).isEqualTo(450L);
+        assertThat(progress.getTotal()).isEqualTo(1000L);
+        assertThat(progress.getBytes()).isEqualTo(1572864L);
+        assertThat(progress.getBytesPerSecond()).isEqualTo(2097152L);
+
+    }
+
+    @Test
+    public void testParseRemote() {
+
+        // TEST
+        final GitCloneProgress progress = GitProgressOutputStream.parse(REPO,
+                "remote: Counting objects: 100% (3/3), done.        ");
+
+        // VERIFY
+        assertThat(progress).isNotNull();
+        assertThat(progress.getPhase()).isEqualTo("Counting objects");
+        assertThat(progress.getPercent()).isEqualTo(100);
+        assertThat(progress.getBytes()).isEqualTo(0L);
+        assertThat(progress.getBytesPerSecond()).isEqualTo(0L);
+
+    }
+
+    @Test
+    public void testParseNoProgress() {
+        assertThat(GitProgressOutputStream.parse(REPO,
+                "Cloning into 'b'...")).isNull();
+        assertThat(GitProgressOutputStream.parse(REPO,
+                "remote: Enumerating objects: 3, done.")).isNull();
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+
+        // PREPARE
+        final List<GitCloneProgress> events = new ArrayList<>();
+        final ByteArrayOutputStream delegate = new ByteArrayOutputStream();
+        final String output = "Cloning into 'b'...\n"
+                + "Receiving objects:  50% (1/2)\r"
+                + "Receiving objects: 100% (2/2), 215 bytes | 215.00 KiB/s, done.\n";
+
+        // TEST
+        try (final GitProgressOutputStream testee = new GitProgressOutputStream(
+                REPO, events::add, delegate)) {
+            testee.write(output.getBytes(Charset.forName("utf-8")));
+        }
+
+        // VERIFY
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0).getPercent()).isEqualTo(50);
+        assertThat(events.get(1).getPercent()).isEqualTo(100);
+        assertThat(events.get(1).getBytes()).isEqualTo(215L);
+        assertThat(new String(delegate.toByteArray(), Charset.forName("utf-8")))
+                .isEqualTo("Cloning into 'b'...\n"
+                        + "Receiving objects: 100% (2/2), 215 bytes | 215.00 KiB/s, done.\n");
+
+    }
+
+}
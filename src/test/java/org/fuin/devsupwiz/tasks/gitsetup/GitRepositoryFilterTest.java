@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Test for the {@link GitRepositoryFilter} class.
+ */
+public class GitRepositoryFilterTest {
+
+    @Test
+    public void testMatchesAll() {
+        final GitRepositoryFilter testee = new GitRepositoryFilter(null, null);
+        assertThat(testee.matches("git@bitbucket.org:a/b.git")).isTrue();
+    }
+
+    @Test
+    public void testMatchesGlob() {
+
+        // PREPARE
+        final GitRepositoryFilter testee = new GitRepositoryFilter(
+                "*:team-a/*, *:shared/*", "*-archive.git");
+
+        // TEST & VERIFY
+        assertThat(testee.matches("git@bitbucket.org:team-a/app.git"))
+                .isTrue();
+        assertThat(testee.matches("git@bitbucket.org:shared/lib.git"))
+                .isTrue();
+        assertThat(testee.matches("git@bitbucket.org:team-b/app.git"))
+                .isFalse();
+        assertThat(testee.matches("git@bitbucket.org:team-a/app-archive.git"))
+                .isFalse();
+
+    }
+
+    @Test
+    public void testMatchesRegex() {
+
+        // PREPARE
+        final GitRepositoryFilter testee = new GitRepositoryFilter(
+                "regex:/(app|lib)[0-9]+\\.git$", null);
+
+        // TEST & VERIFY
+        assertThat(testee.matches("https://github.com/a/app1.git")).isTrue();
+        assertThat(testee.matches("https://github.com/a/lib22.git")).isTrue();
+        assertThat(testee.matches("https://github.com/a/app.git")).isFalse();
+
+    }
+
+    @Test
+    public void testGlobToRegex() {
+        assertThat(GitRepositoryFilter.globToRegex("a*b?.git"))
+                .isEqualTo("^\\Qa\\E.*\\Qb\\E.\\Q.git\\E$");
+    }
+
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Test for the {@link GitSparseCheckout} class.
+ */
+public class GitSparseCheckoutTest {
+
+    @Test
+    public void testIsValidDir() {
+
+        assertThat(GitSparseCheckout.isValidDir("services")).isTrue();
+        assertThat(GitSparseCheckout.isValidDir("services/billing-api"))
+                .isTrue();
+        assertThat(GitSparseCheckout.isValidDir(".github/workflows")).isTrue();
+        assertThat(GitSparseCheckout.isValidDir("v1.2_x")).isTrue();
+
+        assertThat(GitSparseCheckout.isValidDir(null)).isFalse();
+        assertThat(GitSparseCheckout.isValidDir("")).isFalse();
+        assertThat(GitSparseCheckout.isValidDir("/etc")).isFalse();
+        assertThat(GitSparseCheckout.isValidDir("a/")).isFalse();
+        assertThat(GitSparseCheckout.isValidDir("a//b")).isFalse();
+        assertThat(GitSparseCheckout.isValidDir("..")).isFalse();
+        assertThat(GitSparseCheckout.isValidDir("a/../b")).isFalse();
+        assertThat(GitSparseCheckout.isValidDir("./a")).isFalse();
+        assertThat(GitSparseCheckout.isValidDir("my dir")).isFalse();
+        assertThat(GitSparseCheckout.isValidDir("a;rm -rf ~")).isFalse();
+        assertThat(GitSparseCheckout.isValidDir("$(id)")).isFalse();
+        assertThat(GitSparseCheckout.isValidDir("src/*")).isFalse();
+
+    }
+
+}
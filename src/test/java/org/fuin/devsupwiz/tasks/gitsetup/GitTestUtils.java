@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Helper methods for tests that need a local git repository.
+ */
+final class GitTestUtils {
+
+    /**
+     * Private utility class constructor.
+     */
+    private GitTestUtils() {
+        throw new UnsupportedOperationException(
+                "Cannot create an instance of a utility class");
+    }
+
+    /**
+     * Creates a new repository with a single commit.
+     * 
+     * @param dir
+     *            Directory to create the repository in. Must not exist.
+     * 
+     * @return "file://" URL of the new repository.
+     * 
+     * @throws IOException
+     *             Error creating the repository.
+     */
+    static String createOrigin(final File dir) throws IOException {
+        assertThat(dir.mkdirs()).isTrue();
+        git(dir, "init", "-q");
+        FileUtils.writeStringToFile(new File(dir, "README.md"), "Test",
+                Charset.forName("utf-8"));
+        git(dir, "add", ".");
+        git(dir, "-c", "user.name=Test", "-c", "user.email=test@fuin.org",
+                "commit", "-q", "-m", "Initial");
+        return "file://" + dir.getAbsolutePath();
+    }
+
+    /**
+     * Executes a git command and verifies it succeeded.
+     * 
+     * @param dir
+     *            Working directory.
+     * @param args
+     *            Arguments for git.
+     * 
+     * @throws IOException
+     *             Error executing the command.
+     */
+    static void git(final File dir, final String... args) throws IOException {
+        final String[] cmd = new String[args.length + 1];
+        cmd[0] = "git";
+        System.arraycopy(args, 0, cmd, 1, args.length);
+        final Process process = new ProcessBuilder(cmd).directory(dir)
+                .inheritIO().start();
+        try {
+            assertThat(process.waitFor()).isEqualTo(0);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted: " + String.join(" ", cmd), ex);
+        }
+    }
+
+}
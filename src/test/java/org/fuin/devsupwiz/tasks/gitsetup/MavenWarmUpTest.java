@@ -0,0 +1,189 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+/**
+ * Test for the {@link MavenWarmUp} class.
+ */
+public class MavenWarmUpTest {
+
+    private static final Charset UTF8 = Charset.forName("utf-8");
+
+    @Test
+    public void testCreateCommand() {
+
+        assertThat(new MavenWarmUp("mvn", null, null, 1, null).createCommand())
+                .containsExactly("mvn", "-B", MavenWarmUp.LOCKING[0],
+                        MavenWarmUp.LOCKING[1], MavenWarmUp.GOAL);
+
+        assertThat(new MavenWarmUp("/opt/mvn", new File("/a/settings.xml"),
+                new File("/b/repo"), 1, null).createCommand()).containsExactly(
+                        "/opt/mvn", "-B", "-s", "/a/settings.xml",
+                        "-Dmaven.repo.local=/b/repo", MavenWarmUp.LOCKING[0],
+                        MavenWarmUp.LOCKING[1], MavenWarmUp.GOAL);
+
+    }
+
+    @Test
+    public void testRun() throws IOException {
+
+        // PREPARE
+        final File baseDir = new File("target/maven-warm-up-test")
+                .getAbsoluteFile();
+        FileUtils.deleteDirectory(baseDir);
+        final File log = new File(baseDir, "mvn.log");
+        final File mvn = createFakeMaven(baseDir, log, "3.9.6");
+        final File maven = createDir(baseDir, "maven", true);
+        final File plain = createDir(baseDir, "plain", false);
+        final File broken = createDir(baseDir, "broken", true);
+        final MavenWarmUp testee = new MavenWarmUp(mvn.getPath(), null,
+                new File(baseDir, "repo"), 2, null);
+
+        // TEST
+        final List<File> failed = testee.run(Arrays.asList(maven, plain,
+                broken));
+
+        // VERIFY
+        assertThat(failed).containsExactly(broken);
+        final List<String> lines = FileUtils.readLines(log, UTF8);
+        final List<String> dirs = new ArrayList<>();
+        for (final String line : lines) {
+            assertThat(line).endsWith(" -B -Dmaven.repo.local="
+                    + new File(baseDir, "repo") + " "
+                    + String.join(" ", MavenWarmUp.LOCKING) + " "
+                    + MavenWarmUp.GOAL);
+            dirs.add(line.substring(0, line.indexOf(' ')));
+        }
+        assertThat(dirs).containsExactlyInAnyOrder(maven.getPath(),
+                broken.getPath());
+
+    }
+
+    @Test
+    public void testRunOldMaven() throws IOException {
+
+        // PREPARE
+        final File baseDir = new File("target/maven-warm-up-old-test")
+                .getAbsoluteFile();
+        FileUtils.deleteDirectory(baseDir);
+        final File log = new File(baseDir, "mvn.log");
+        final File mvn = createFakeMaven(baseDir, log, "3.8.8");
+        final List<File> dirs = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            dirs.add(createDir(baseDir, "maven" + i, true));
+        }
+        final MavenWarmUp testee = new MavenWarmUp(mvn.getPath(), null, null,
+                4, null);
+
+        // TEST
+        final List<File> failed = testee.run(dirs);
+
+        // VERIFY (Projects were resolved one after the other)
+        assertThat(failed).isEmpty();
+        assertThat(FileUtils.readLines(log, UTF8)).hasSize(4);
+        assertThat(new File(log.getPath() + ".overlap")).doesNotExist();
+
+    }
+
+    @Test
+    public void testSupportsLocking() {
+        assertThat(MavenWarmUp.supportsLocking(null)).isFalse();
+        assertThat(MavenWarmUp.supportsLocking("mvn: command not found"))
+                .isFalse();
+        assertThat(MavenWarmUp.supportsLocking(
+                "Apache Maven 3.8.8 (4c87b05d9aedce574290d1acc98575ed5eb6cd39)"))
+                        .isFalse();
+        assertThat(MavenWarmUp.supportsLocking(
+                "Apache Maven 3.9.6 (bc0240f3c744dd6b6ec2920b3cd08dcc295161ae)\n"
+                        + "Maven home: /opt/maven")).isTrue();
+        assertThat(MavenWarmUp.supportsLocking("Apache Maven 4.0.0-rc-2"))
+                .isTrue();
+    }
+
+    @Test
+    public void testRunCancelled() throws IOException {
+
+        // PREPARE
+        final File baseDir = new File("target/maven-warm-up-cancel-test")
+                .getAbsoluteFile();
+        FileUtils.deleteDirectory(baseDir);
+        final File log = new File(baseDir, "mvn.log");
+        final File mvn = createFakeMaven(baseDir, log, "3.9.6");
+        final CancellationToken token = new CancellationToken();
+        token.cancel();
+        final MavenWarmUp testee = new MavenWarmUp(mvn.getPath(), null, null,
+                1, token);
+
+        // TEST
+        final List<File> failed = testee
+                .run(Arrays.asList(createDir(baseDir, "maven", true)));
+
+        // VERIFY
+        assertThat(failed).isEmpty();
+        assertThat(log).doesNotExist();
+
+    }
+
+    /**
+     * Creates a script that prints the given version for "-v". Otherwise it
+     * logs the working directory and its arguments and fails in directories
+     * named "broken". If two instances run at the same time, a line is
+     * written to a file with the same name as the log and ".overlap" appended.
+     */
+    static File createFakeMaven(final File baseDir, final File log,
+            final String version) throws IOException {
+        final File mvn = new File(baseDir, "mvn");
+        FileUtils.writeStringToFile(mvn, "#!/bin/bash\n"
+                + "if [ \"$2\" == \"-v\" ]; then\n"
+                + "  echo \"Apache Maven " + version + " (abc)\"\n"
+                + "  exit 0\n"
+                + "fi\n"
+                + "mkdir " + log + ".lock 2>/dev/null || echo \"$PWD\" >> "
+                + log + ".overlap\n"
+                + "echo \"$PWD $*\" >> " + log + "\n"
+                + "sleep 0.3\n"
+                + "rmdir " + log + ".lock 2>/dev/null\n"
+                + "[ \"$(basename $PWD)\" != \"broken\" ]\n", UTF8);
+        mvn.setExecutable(true);
+        return mvn;
+    }
+
+    private static File createDir(final File baseDir, final String name,
+            final boolean pom) throws IOException {
+        final File dir = new File(baseDir, name);
+        dir.mkdirs();
+        if (pom) {
+            FileUtils.writeStringToFile(new File(dir, "pom.xml"), "<project/>",
+                    UTF8);
+        }
+        return dir;
+    }
+
+}
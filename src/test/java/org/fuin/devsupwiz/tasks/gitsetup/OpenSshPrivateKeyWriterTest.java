@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.KeyPair;
+import java.security.Security;
+
+import org.apache.commons.io.FileUtils;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test for the {@link OpenSshPrivateKeyWriter} class.
+ */
+public class OpenSshPrivateKeyWriterTest {
+
+    private static final Charset US_ASCII = Charset.forName("us-ascii");
+
+    private static final File DIR = new File(
+            "target/openssh-private-key-writer-test");
+
+    @BeforeClass
+    public static void beforeClass() {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+        for (final SshKeyType type : SshKeyType.values()) {
+            verify(type, null);
+        }
+    }
+
+    @Test
+    public void testWritePassphrase() throws IOException {
+        for (final SshKeyType type : SshKeyType.values()) {
+            verify(type, "Secret passphrase");
+        }
+    }
+
+    @Test
+    public void testCalibrateRounds() {
+
+        // TEST
+        final int none = OpenSshPrivateKeyWriter.calibrateRounds(0);
+        final int slow = OpenSshPrivateKeyWriter.calibrateRounds(2000);
+
+        // VERIFY
+        assertThat(none).isEqualTo(OpenSshPrivateKeyWriter.MIN_ROUNDS);
+        assertThat(slow).isGreaterThan(OpenSshPrivateKeyWriter.MIN_ROUNDS);
+
+    }
+
+    private static void verify(final SshKeyType type, final String passphrase)
+            throws IOException {
+
+        // PREPARE
+        final File file = new File(DIR, type.getName());
+        final KeyPair keyPair = SshKeyPairGenerator.generateKeyPair(type,
+                SshKeyPairGenerator.DEFAULT_RSA_KEY_SIZE);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // TEST
+        OpenSshPrivateKeyWriter.write(out, type, keyPair, "peter@example",
+                passphrase == null ? null : passphrase.toCharArray(),
+                OpenSshPrivateKeyWriter.MIN_ROUNDS);
+
+        // VERIFY
+        final String privateKey = new String(out.toByteArray(), US_ASCII);
+        assertThat(privateKey).startsWith(OpenSshPrivateKeyWriter.BEGIN + "\n");
+        assertThat(privateKey).endsWith(OpenSshPrivateKeyWriter.END + "\n");
+        FileUtils.forceMkdir(DIR);
+        SshTestUtils.writePrivateKey(file, privateKey);
+        final String expected = SshPublicKeyEncoder.toString(type,
+                SshPublicKeyEncoder.encodeBase64(type, keyPair.getPublic()),
+                "peter@example");
+        if (passphrase == null) {
+            assertThat(SshTestUtils.sshKeygen("-y", "-f", file.getPath()))
+                    .isEqualTo(expected);
+        } else {
+            assertThat(SshTestUtils.sshKeygen("-y", "-P", passphrase, "-f",
+                    file.getPath())).isEqualTo(expected);
+            assertThat(SshTestUtils.sshKeygenStatus("-y", "-P", "wrong", "-f",
+                    file.getPath())).isNotEqualTo(0);
+        }
+
+    }
+
+}
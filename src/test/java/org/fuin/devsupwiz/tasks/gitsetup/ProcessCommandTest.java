@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+import org.junit.Test;
+
+/**
+ * Test for the {@link ProcessCommand} class.
+ */
+public class ProcessCommandTest {
+
+    @Test
+    public void testQuery() {
+        assertThat(ProcessCommand.query(Arrays.asList("echo", " hello "),
+                new File("."), 10)).isEqualTo("hello");
+        assertThat(ProcessCommand.query(Arrays.asList("false"), new File("."), 10))
+                .isNull();
+    }
+
+    @Test
+    public void testQueryArgumentsNotInterpreted() {
+        assertThat(ProcessCommand.query(Arrays.asList("echo", "a b;echo $HOME"),
+                new File("."), 10)).isEqualTo("a b;echo $HOME");
+    }
+
+    @Test
+    public void testExecuteStalled() {
+
+        // PREPARE
+        final long start = System.currentTimeMillis();
+
+        // TEST
+        assertThatThrownBy(() -> ProcessCommand.execute(
+                Arrays.asList("sleep", "30"), new File("."), 0, 1,
+                new ByteArrayOutputStream()))
+                        .hasMessageContaining("without progress");
+
+        // VERIFY
+        assertThat(System.currentTimeMillis() - start).isLessThan(10000L);
+
+    }
+
+    @Test
+    public void testExecuteProgressKeepsAlive() {
+
+        // PREPARE
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        // TEST
+        final int result = ProcessCommand.execute(Arrays.asList("bash", "-c",
+                "for i in 1 2 3 4; do echo $i >&2; sleep 0.5; done"),
+                new File("."), 0, 1, err);
+
+        // VERIFY
+        assertThat(result).isEqualTo(0);
+        assertThat(new String(err.toByteArray())).isEqualTo("1\n2\n3\n4\n");
+
+    }
+
+    @Test
+    public void testExecuteCancelled() {
+
+        // PREPARE
+        final CancellationToken token = new CancellationToken();
+        final Thread thread = new Thread(() -> {
+            token.await(500);
+            token.cancel();
+        });
+        final long start = System.currentTimeMillis();
+        thread.start();
+
+        // TEST
+        assertThatThrownBy(() -> ProcessCommand.execute(
+                Arrays.asList("sleep", "30"), new File("."), 0, 0,
+                new ByteArrayOutputStream(), token))
+                        .isInstanceOf(CancellationException.class)
+                        .hasMessage("Cancelled: sleep 30");
+
+        // VERIFY
+        assertThat(System.currentTimeMillis() - start).isLessThan(10000L);
+
+    }
+
+    @Test
+    public void testExecuteTimeout() {
+        assertThatThrownBy(() -> ProcessCommand.execute(Arrays.asList("bash",
+                "-c", "while true; do echo . >&2; sleep 0.2; done"),
+                new File("."), 1, 1, new ByteArrayOutputStream()))
+                        .hasMessageContaining("Aborted after 1 seconds");
+    }
+
+}
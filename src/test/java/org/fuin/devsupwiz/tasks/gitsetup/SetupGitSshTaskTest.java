@@ -22,6 +22,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.validation.ConstraintViolation;
@@ -102,6 +105,172 @@ public class SetupGitSshTaskTest {
 
     }
 
+    @Test
+    public void testExecuteEd25519() throws IOException {
+
+        // PREPARE
+        final GenerateSshKeyTask testee = new GenerateSshKeyTask("x",
+                "peter_parker", "bitbucket.org", sshDir);
+        testee.setKeyType("ed25519");
+        final ConfigImpl config = new ConfigImpl("test", testee);
+        config.init();
+
+        // TEST
+        testee.execute();
+
+        // VERIFY
+        final File dir = new File(sshDir, "bitbucket.org/peter_parker");
+        assertThat(new File(dir, "id_ed25519")).exists();
+        assertThat(new File(dir, "id_ed25519.pub")).exists();
+        assertThat(testee.getPublicKey()).startsWith("ssh-ed25519 ");
+        assertThat(testee.getConfigFile()).usingCharset("utf-8")
+                .hasContent("Host bitbucket.org" + System.lineSeparator()
+                        + "    User peter_parker" + System.lineSeparator()
+                        + "    HostName bitbucket.org" + System.lineSeparator()
+                        + "    IdentityFile " + new File(dir, "id_ed25519")
+                        + System.lineSeparator());
+
+    }
+
+    @Test
+    public void testExecutePassphrase() throws IOException {
+
+        // PREPARE
+        final GenerateSshKeyTask testee = new GenerateSshKeyTask("x",
+                "peter_parker", "bitbucket.org", sshDir);
+        testee.setKeyType("ecdsa-p256");
+        testee.setUnlockMillis(0);
+        testee.setPassphrase("Secret passphrase".toCharArray());
+        final ConfigImpl config = new ConfigImpl("test", testee);
+        config.init();
+
+        // TEST
+        testee.execute();
+
+        // VERIFY
+        final File file = new File(sshDir, "bitbucket.org/peter_parker/id_ecdsa");
+        assertThat(testee.hasPassphrase()).isFalse();
+        assertThat(SshTestUtils.sshKeygen("-y", "-P", "Secret passphrase",
+                "-f", file.getPath())).isEqualTo(testee.getPublicKey());
+        assertThat(SshTestUtils.sshKeygenStatus("-y", "-P", "", "-f",
+                file.getPath())).isNotEqualTo(0);
+
+    }
+
+    @Test
+    public void testExecuteMultipleHosts() throws IOException {
+
+        // PREPARE
+        final GenerateSshKeyTask testee = new GenerateSshKeyTask("x",
+                "peter_parker", "github.com", sshDir);
+        testee.setKeyType("ed25519");
+        testee.setHosts(Arrays.asList("github.com", "bitbucket.org",
+                "gitlab.example.com"));
+        final ConfigImpl config = new ConfigImpl("test", testee);
+        config.init();
+
+        // TEST
+        testee.execute();
+
+        // VERIFY
+        final List<String> keys = testee.getPublicKeys();
+        assertThat(keys).hasSize(3);
+        assertThat(testee.getPublicKey()).isEqualTo(keys.get(0));
+        assertThat(new HashSet<>(keys)).hasSize(3);
+        final StringBuilder expected = new StringBuilder();
+        final String lf = System.lineSeparator();
+        for (int i = 0; i < keys.size(); i++) {
+            final String host = testee.getHosts().get(i);
+            final File file = new File(sshDir,
+                    host + "/peter_parker/id_ed25519");
+            assertThat(file.getParentFile().list())
+                    .containsExactlyInAnyOrder("id_ed25519", "id_ed25519.pub");
+            assertThat(SshTestUtils.sshKeygen("-y", "-f", file.getPath()))
+                    .isEqualTo(keys.get(i));
+            expected.append("Host " + host + lf + "    User peter_parker" + lf
+                    + "    HostName " + host + lf + "    IdentityFile "
+                    + file + lf);
+        }
+        assertThat(testee.getConfigFile()).usingCharset("utf-8")
+                .hasContent(expected.toString());
+        assertThat(sshDir.list()).containsExactlyInAnyOrder("config",
+                "github.com", "bitbucket.org", "gitlab.example.com");
+
+    }
+
+    @Test
+    public void testExecutePreGenerated() {
+
+        // PREPARE
+        final SshKeyPairPool pool = SshKeyPairPool.getInstance();
+        final GenerateSshKeyTask testee = new GenerateSshKeyTask("x",
+                "peter_parker", "bitbucket.org", sshDir);
+        testee.setKeyType("ecdsa-p384");
+        final int size = pool.size(SshKeyType.ECDSA_P384, 0,
+                SshKeyService.RANDOM_DEFAULT);
+        testee.afterUnmarshal(null, null);
+        assertThat(pool.size(SshKeyType.ECDSA_P384, 0,
+                SshKeyService.RANDOM_DEFAULT)).isEqualTo(size + 1);
+        final ConfigImpl config = new ConfigImpl("test", testee);
+        config.init();
+
+        // TEST
+        testee.execute();
+
+        // VERIFY
+        assertThat(pool.size(SshKeyType.ECDSA_P384, 0,
+                SshKeyService.RANDOM_DEFAULT)).isEqualTo(size);
+        assertThat(testee.getPublicKey()).startsWith("ecdsa-sha2-nistp384 ");
+
+    }
+
+    @Test
+    public void testFilterHostKeys() {
+
+        // PREPARE
+        final String known = "github.com ssh-ed25519 AAAAC3NzaC1lZDI1";
+        final String rsa = "[git.example.com]:2222 ssh-rsa AAAAB3Nz+/w==";
+        final String ecdsa = "gitlab.com ecdsa-sha2-nistp256 AAAAE2VjZHNh";
+        final List<String> lines = Arrays.asList(
+                "# github.com:22 SSH-2.0-babeld",
+                "getaddrinfo unknown.example.com: Name or service not known",
+                "", known, rsa, ecdsa, rsa, "gitlab.com ssh-rsa AAAA\u0000B");
+        final Set<String> knownLines = new HashSet<>(Arrays.asList(known));
+
+        // TEST
+        final String result = GenerateSshKeyTask.filterHostKeys(lines,
+                knownLines);
+
+        // VERIFY
+        assertThat(result).isEqualTo(rsa + "\n" + ecdsa + "\n");
+
+    }
+
+    @Test
+    public void testIsKnownHost() throws IOException {
+
+        // PREPARE
+        final File knownHosts = new File(sshDir, "known_hosts");
+        final String[] key = new SshKeyPairGenerator("test",
+                SshKeyType.ED25519, 0).getPublicKey().split(" ");
+        FileUtils.writeStringToFile(knownHosts,
+                "a.example.com,b.example.com " + key[0] + " " + key[1] + "\n",
+                Charset.forName("utf-8"));
+        // Hash the host names like "HashKnownHosts yes" does
+        SshTestUtils.sshKeygen("-H", "-f", knownHosts.getPath());
+
+        // TEST & VERIFY
+        assertThat(FileUtils.readFileToString(knownHosts,
+                Charset.forName("utf-8"))).doesNotContain("example.com");
+        assertThat(GenerateSshKeyTask.isKnownHost("b.example.com", knownHosts))
+                .isTrue();
+        assertThat(GenerateSshKeyTask.isKnownHost("c.example.com", knownHosts))
+                .isFalse();
+        assertThat(GenerateSshKeyTask.isKnownHost("a.example.com",
+                new File(sshDir, "missing"))).isFalse();
+
+    }
+
     @Test
     public void testValidateInstance() {
 
@@ -157,4 +326,24 @@ public class SetupGitSshTaskTest {
 
     }
 
+    @Test
+    public void testUnmarshalHosts() {
+
+        // PREPARE
+        final String xml = "<generate-ssh-key id=\"x\" name=\"peter_parker\">"
+                + "<host>github.com</host><host>bitbucket.org</host>"
+                + "</generate-ssh-key>";
+
+        // TEST
+        final GenerateSshKeyTask testee = JaxbUtils.unmarshal(xml,
+                GenerateSshKeyTask.class);
+
+        // VERIFY
+        assertThat(testee.getHost()).isEqualTo("github.com");
+        assertThat(testee.getHosts()).containsExactly("github.com",
+                "bitbucket.org");
+        assertThat(testee.getPublicKeys()).isEmpty();
+
+    }
+
 }
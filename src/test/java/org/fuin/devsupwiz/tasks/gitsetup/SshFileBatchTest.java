@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for the {@link SshFileBatch} class.
+ */
+public class SshFileBatchTest {
+
+    private static final Charset UTF8 = Charset.forName("utf-8");
+
+    private File dir;
+
+    @Before
+    public void setup() throws IOException {
+        dir = new File("target/ssh-file-batch-test");
+        FileUtils.deleteQuietly(dir);
+        FileUtils.forceMkdir(dir);
+    }
+
+    @Test
+    public void testCommit() throws IOException {
+
+        // PREPARE
+        final File config = new File(dir, "config");
+        FileUtils.writeStringToFile(config, "Host a\n", UTF8);
+        final File key = new File(dir, "b/id_ed25519");
+        final SshFileBatch testee = new SshFileBatch();
+        testee.write(key, true, channel -> channel
+                .write(ByteBuffer.wrap("secret".getBytes(UTF8))));
+        testee.append(config, false, channel -> channel
+                .write(ByteBuffer.wrap("Host b\n".getBytes(UTF8))));
+        assertThat(key).doesNotExist();
+
+        // TEST
+        testee.commit();
+
+        // VERIFY
+        assertThat(key).usingCharset(UTF8).hasContent("secret");
+        assertThat(config).usingCharset(UTF8).hasContent("Host a\nHost b\n");
+        assertThat(dir.list()).containsExactlyInAnyOrder("config", "b");
+        assertThat(key.getParentFile().list())
+                .containsExactlyInAnyOrder("id_ed25519");
+
+    }
+
+    @Test
+    public void testCommitFailure() throws IOException {
+
+        // PREPARE
+        final File config = new File(dir, "config");
+        FileUtils.writeStringToFile(config, "Host a\n", UTF8);
+        final SshFileBatch testee = new SshFileBatch();
+        testee.write(new File(dir, "id_rsa"), true, channel -> channel
+                .write(ByteBuffer.wrap("secret".getBytes(UTF8))));
+        testee.append(config, false, channel -> channel
+                .write(ByteBuffer.wrap("Host b\n".getBytes(UTF8))));
+        testee.write(new File(dir, "known_hosts"), false, channel -> {
+            throw new IOException("Failure");
+        });
+
+        // TEST
+        try {
+            testee.commit();
+            fail("Expected an exception");
+        } catch (final IOException ex) {
+            assertThat(ex.getMessage()).isEqualTo("Failure");
+        }
+
+        // VERIFY
+        assertThat(config).usingCharset(UTF8).hasContent("Host a\n");
+        assertThat(dir.list()).containsExactlyInAnyOrder("config");
+
+    }
+
+    @Test
+    public void testCommitKeepsLinksAndPermissions() throws IOException {
+
+        // PREPARE
+        final File real = new File(dir, "dotfiles/config");
+        FileUtils.writeStringToFile(real, "Host a\n", UTF8);
+        final Path config = new File(dir, "config").toPath();
+        Files.createSymbolicLink(config, real.getAbsoluteFile().toPath());
+        final File knownHosts = new File(dir, "known_hosts");
+        FileUtils.writeStringToFile(knownHosts, "a ssh-rsa AAAA\n", UTF8);
+        Files.setPosixFilePermissions(knownHosts.toPath(),
+                PosixFilePermissions.fromString("rw-r-----"));
+        final SshFileBatch testee = new SshFileBatch();
+        testee.append(config.toFile(), false, channel -> channel
+                .write(ByteBuffer.wrap("Host b\n".getBytes(UTF8))));
+        testee.write(knownHosts, false, channel -> channel
+                .write(ByteBuffer.wrap("b ssh-rsa BBBB\n".getBytes(UTF8))));
+
+        // TEST
+        testee.commit();
+
+        // VERIFY
+        assertThat(Files.isSymbolicLink(config)).isTrue();
+        assertThat(real).usingCharset(UTF8).hasContent("Host a\nHost b\n");
+        assertThat(knownHosts).usingCharset(UTF8)
+                .hasContent("b ssh-rsa BBBB\n");
+        assertThat(PosixFilePermissions.toString(
+                Files.getPosixFilePermissions(knownHosts.toPath())))
+                        .isEqualTo("rw-r-----");
+        assertThat(real.getParentFile().list())
+                .containsExactlyInAnyOrder("config");
+
+    }
+
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.Security;
+
+import org.apache.commons.io.FileUtils;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test for the {@link SshKeyPairGenerator} class.
+ */
+public class SshKeyPairGeneratorTest {
+
+    @BeforeClass
+    public static void beforeClass() {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
+
+    @Test
+    public void testRsa() throws IOException {
+        verify(SshKeyType.RSA, 3072);
+    }
+
+    @Test
+    public void testEd25519() throws IOException {
+        verify(SshKeyType.ED25519, 0);
+    }
+
+    @Test
+    public void testEcdsa() throws IOException {
+        verify(SshKeyType.ECDSA_P256, 0);
+        verify(SshKeyType.ECDSA_P384, 0);
+        verify(SshKeyType.ECDSA_P521, 0);
+    }
+
+    private static void verify(final SshKeyType type, final int keySize)
+            throws IOException {
+
+        // PREPARE
+        final File dir = new File("target/ssh-key-pair-generator-test");
+        final File file = new File(dir, type.getFileName());
+        FileUtils.deleteQuietly(file);
+
+        // TEST
+        final SshKeyPairGenerator testee = new SshKeyPairGenerator("peter",
+                type, keySize);
+
+        // VERIFY
+        assertThat(testee.getType()).isEqualTo(type);
+        assertThat(testee.getPrivateKey())
+                .startsWith(OpenSshPrivateKeyWriter.BEGIN);
+        assertThat(testee.getPublicKey()).startsWith(type.getSshName() + " ");
+        assertThat(testee.getPublicKey()).endsWith(" peter");
+        SshTestUtils.writePrivateKey(file, testee.getPrivateKey());
+        final String derived = SshTestUtils.sshKeygen("-y", "-f",
+                file.getPath());
+        assertThat(testee.getPublicKey()).startsWith(derived);
+        if (type == SshKeyType.RSA) {
+            assertThat(SshTestUtils.sshKeygen("-l", "-f", file.getPath()))
+                    .startsWith(keySize + " ");
+        }
+
+    }
+
+}
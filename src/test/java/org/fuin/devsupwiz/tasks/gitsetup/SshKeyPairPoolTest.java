@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.fuin.devsupwiz.tasks.gitsetup.SshKeyService.RANDOM_DEFAULT;
+
+import java.security.KeyPair;
+
+import org.junit.Test;
+
+/**
+ * Test for the {@link SshKeyPairPool} class.
+ */
+public class SshKeyPairPoolTest {
+
+    @Test
+    public void testTake() {
+
+        // PREPARE
+        final SshKeyPairPool testee = new SshKeyPairPool(2);
+        testee.prefetch(SshKeyType.ED25519, 0, RANDOM_DEFAULT);
+        testee.prefetch(SshKeyType.ED25519, 0, RANDOM_DEFAULT);
+        testee.prefetch(SshKeyType.RSA, 2048, RANDOM_DEFAULT);
+        assertThat(testee.size(SshKeyType.ED25519, 0, RANDOM_DEFAULT))
+                .isEqualTo(2);
+        assertThat(testee.size(SshKeyType.RSA, 4096, RANDOM_DEFAULT))
+                .isEqualTo(0);
+
+        // TEST
+        final KeyPair first = testee
+                .take(SshKeyType.ED25519, 0, RANDOM_DEFAULT).getKeyPair();
+        final KeyPair second = testee
+                .take(SshKeyType.ED25519, 0, RANDOM_DEFAULT).getKeyPair();
+        final KeyPair generated = testee
+                .take(SshKeyType.ED25519, 0, RANDOM_DEFAULT).getKeyPair();
+
+        // VERIFY
+        assertThat(first.getPublic().getAlgorithm()).isEqualTo("Ed25519");
+        assertThat(second.getPublic()).isNotEqualTo(first.getPublic());
+        assertThat(generated.getPublic()).isNotEqualTo(first.getPublic());
+        assertThat(generated.getPublic()).isNotEqualTo(second.getPublic());
+        assertThat(testee.size(SshKeyType.ED25519, 0, RANDOM_DEFAULT))
+                .isEqualTo(0);
+        assertThat(testee.size(SshKeyType.RSA, 2048, RANDOM_DEFAULT))
+                .isEqualTo(1);
+
+    }
+
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.security.KeyPair;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares generating a key pair with a new generator and random number
+ * generator (cold) with the cached and warmed up generator of the
+ * {@link SshKeyService} (warm). Start it with the main method as it is no
+ * unit test.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SshKeyServiceBenchmark {
+
+    @Param({ "ed25519", "ecdsa-p256", "rsa" })
+    private String keyType;
+
+    @Param({ "2048" })
+    private int keySize;
+
+    private SshKeyType type;
+
+    private SshKeyService service;
+
+    /**
+     * Registers the provider and warms up a generator.
+     */
+    @Setup
+    public void setup() {
+        type = SshKeyType.fromName(keyType);
+        service = SshKeyService.getInstance();
+        service.warmUp(type, keySize, SshKeyService.RANDOM_DEFAULT);
+    }
+
+    /**
+     * Creates and seeds a new generator for every key pair like it was done
+     * before the service existed.
+     * 
+     * @return Key pair.
+     */
+    @Benchmark
+    public KeyPair cold() {
+        return SshKeyService.createGenerator(type, keySize, new SecureRandom())
+                .generateKeyPair();
+    }
+
+    /**
+     * Uses a cached generator.
+     * 
+     * @return Key pair.
+     */
+    @Benchmark
+    public KeyPair warm() {
+        return service
+                .generateKeyPair(type, keySize, SshKeyService.RANDOM_DEFAULT)
+                .getKeyPair();
+    }
+
+    /**
+     * Runs the benchmark.
+     * 
+     * @param args
+     *            Not used.
+     * 
+     * @throws RunnerException
+     *             Error running the benchmark.
+     */
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SshKeyServiceBenchmark.class.getSimpleName()).build())
+                        .run();
+    }
+
+}
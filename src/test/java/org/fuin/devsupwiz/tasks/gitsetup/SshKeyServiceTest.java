@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.fuin.devsupwiz.tasks.gitsetup.SshKeyService.RANDOM_DEFAULT;
+import static org.fuin.devsupwiz.tasks.gitsetup.SshKeyService.RANDOM_DRBG;
+import static org.fuin.devsupwiz.tasks.gitsetup.SshKeyService.RANDOM_PATTERN;
+
+import java.security.KeyPair;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.security.interfaces.RSAPublicKey;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Test;
+
+/**
+ * Test for the {@link SshKeyService} class.
+ */
+public class SshKeyServiceTest {
+
+    @Test
+    public void testGetInstance() {
+        assertThat(SshKeyService.getInstance())
+                .isSameAs(SshKeyService.getInstance());
+        assertThat(Security.getProvider(BouncyCastleProvider.PROVIDER_NAME))
+                .isNotNull();
+    }
+
+    @Test
+    public void testGenerateKeyPair() {
+
+        // PREPARE
+        final SshKeyService testee = SshKeyService.getInstance();
+        testee.warmUp(SshKeyType.ED25519, 0, RANDOM_DEFAULT);
+
+        // TEST
+        final GeneratedSshKeyPair first = testee
+                .generateKeyPair(SshKeyType.ED25519, 0, RANDOM_DEFAULT);
+        final GeneratedSshKeyPair second = testee
+                .generateKeyPair(SshKeyType.ED25519, 0, RANDOM_DEFAULT);
+        final KeyPair ecdsa = testee
+                .generateKeyPair(SshKeyType.ECDSA_P521, 0, RANDOM_DEFAULT)
+                .getKeyPair();
+        final KeyPair rsa = testee
+                .generateKeyPair(SshKeyType.RSA, 1024, RANDOM_DEFAULT)
+                .getKeyPair();
+
+        // VERIFY
+        assertThat(first.getKeyPair().getPublic())
+                .isNotEqualTo(second.getKeyPair().getPublic());
+        assertThat(first.getSeedNanos()).isGreaterThan(0);
+        assertThat(first.isPreSeeded()).isTrue();
+        assertThat(first.getGenerationNanos()).isGreaterThan(0);
+        assertThat(first.getRandom()).isEqualTo(RANDOM_DEFAULT);
+        assertThat(ecdsa.getPublic().getAlgorithm()).startsWith("EC");
+        assertThat(((RSAPublicKey) rsa.getPublic()).getModulus().bitLength())
+                .isEqualTo(1024);
+
+    }
+
+    @Test
+    public void testGenerateKeyPairRandom() throws Exception {
+
+        // PREPARE
+        // New instance has no cached generators
+        final SshKeyService testee = new SshKeyService();
+        for (final String random : RANDOM_PATTERN.split("\\|")) {
+
+            // TEST
+            final GeneratedSshKeyPair generated = testee
+                    .generateKeyPair(SshKeyType.ECDSA_P256, 0, random);
+
+            // VERIFY
+            assertThat(generated.getRandom()).isEqualTo(random);
+            assertThat(generated.getSeedNanos()).isGreaterThan(0);
+            assertThat(generated.isPreSeeded()).isFalse();
+            assertThat(generated.getKeyPair().getPublic().getAlgorithm())
+                    .startsWith("EC");
+
+        }
+
+    }
+
+    @Test
+    public void testWarmUpOtherThread() throws Exception {
+
+        // PREPARE
+        final SshKeyService testee = new SshKeyService();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.submit(() -> testee.warmUp(SshKeyType.ED25519, 0,
+                RANDOM_DEFAULT)).get();
+        executor.shutdown();
+
+        // TEST
+        final GeneratedSshKeyPair generated = testee
+                .generateKeyPair(SshKeyType.ED25519, 0, RANDOM_DEFAULT);
+
+        // VERIFY
+        assertThat(generated.getSeedNanos()).isGreaterThan(0);
+        assertThat(generated.isPreSeeded()).isTrue();
+
+    }
+
+    @Test
+    public void testCreateRandom() {
+
+        // TEST
+        final SecureRandom defaultRandom = SshKeyService
+                .createRandom(RANDOM_DEFAULT);
+        final SecureRandom unknownRandom = SshKeyService
+                .createRandom("DoesNotExist");
+
+        // VERIFY
+        assertThat(defaultRandom).isNotNull();
+        assertThat(unknownRandom.getAlgorithm())
+                .isEqualTo(new SecureRandom().getAlgorithm());
+
+    }
+
+    @Test
+    public void testKey() {
+        assertThat(SshKeyService.key(SshKeyType.RSA, 4096, RANDOM_DEFAULT))
+                .isEqualTo("rsa-4096/default");
+        assertThat(SshKeyService.key(SshKeyType.ECDSA_P256, 4096, RANDOM_DRBG))
+                .isEqualTo("ecdsa-p256/DRBG");
+    }
+
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECPoint;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the former stream based encoding of public keys (stream) with the
+ * {@link SshPublicKeyEncoder} (buffer). Start it with the main method as it is
+ * no unit test. Add "-prof gc" to the JMH options to compare the allocation
+ * rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SshPublicKeyEncoderBenchmark {
+
+    private static final Charset US_ASCII = Charset.forName("us-ascii");
+
+    @Param({ "ed25519", "ecdsa-p256", "rsa" })
+    private String keyType;
+
+    @Param({ "4096" })
+    private int keySize;
+
+    private SshKeyType type;
+
+    private PublicKey key;
+
+    /**
+     * Generates the key to encode.
+     */
+    @Setup
+    public void setup() {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+        type = SshKeyType.fromName(keyType);
+        key = SshKeyPairGenerator.generateKeyPair(type, keySize).getPublic();
+    }
+
+    /**
+     * Encodes the key like it was done before the encoder existed.
+     * 
+     * @return Public key line.
+     * 
+     * @throws IOException
+     *             Error writing the key.
+     */
+    @Benchmark
+    public String stream() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeString(out, type.getSshName().getBytes(US_ASCII));
+        if (type == SshKeyType.RSA) {
+            final RSAPublicKey rsaKey = (RSAPublicKey) key;
+            writeString(out, rsaKey.getPublicExponent().toByteArray());
+            writeString(out, rsaKey.getModulus().toByteArray());
+        } else if (type == SshKeyType.ED25519) {
+            writeString(out, SubjectPublicKeyInfo.getInstance(key.getEncoded())
+                    .getPublicKeyData().getBytes());
+        } else {
+            final ECPublicKey ecKey = (ECPublicKey) key;
+            writeString(out, type.getCurve().getBytes(US_ASCII));
+            final int size = (ecKey.getParams().getCurve().getField()
+                    .getFieldSize() + 7) / 8;
+            final ECPoint point = ecKey.getW();
+            final byte[] result = new byte[1 + 2 * size];
+            result[0] = 0x04;
+            copyUnsigned(point.getAffineX(), result, 1, size);
+            copyUnsigned(point.getAffineY(), result, 1 + size, size);
+            writeString(out, result);
+        }
+        final String base64 = new String(
+                Base64.getEncoder().encode(out.toByteArray()), US_ASCII);
+        return type.getSshName() + " " + base64 + " " + "peter";
+    }
+
+    /**
+     * Encodes the key into a buffer of the exact size.
+     * 
+     * @return Public key line.
+     */
+    @Benchmark
+    public String buffer() {
+        return SshPublicKeyEncoder.toString(type,
+                SshPublicKeyEncoder.encodeBase64(type, key), "peter");
+    }
+
+    private static void copyUnsigned(final BigInteger value,
+            final byte[] target, final int offset, final int size) {
+        final byte[] bytes = value.toByteArray();
+        final int start = bytes.length > size ? bytes.length - size : 0;
+        final int length = bytes.length - start;
+        System.arraycopy(bytes, start, target, offset + size - length, length);
+    }
+
+    private static void writeString(final ByteArrayOutputStream out,
+            final byte[] bytes) throws IOException {
+        final int value = bytes.length;
+        out.write(new byte[] { (byte) ((value >>> 24) & 0xff),
+                (byte) ((value >>> 16) & 0xff), (byte) ((value >>> 8) & 0xff),
+                (byte) (value & 0xff) });
+        out.write(bytes);
+    }
+
+    /**
+     * Runs the benchmark.
+     * 
+     * @param args
+     *            Not used.
+     * 
+     * @throws RunnerException
+     *             Error running the benchmark.
+     */
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SshPublicKeyEncoderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+}
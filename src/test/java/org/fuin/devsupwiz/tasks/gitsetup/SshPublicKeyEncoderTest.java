@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+
+import org.apache.commons.io.FileUtils;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test for the {@link SshPublicKeyEncoder} class. Keys generated by
+ * "ssh-keygen" are decoded and encoded again, the result must be exactly the
+ * same as the public key file "ssh-keygen" created.
+ */
+public class SshPublicKeyEncoderTest {
+
+    private static final Charset US_ASCII = Charset.forName("us-ascii");
+
+    /** X.509 encoding of an Ed25519 public key without the raw key. */
+    private static final byte[] ED25519_PREFIX = new byte[] { 0x30, 0x2a,
+            0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70, 0x03, 0x21, 0x00 };
+
+    private static final File DIR = new File(
+            "target/ssh-public-key-encoder-test");
+
+    @BeforeClass
+    public static void beforeClass() {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
+
+    @Test
+    public void testRsa() throws Exception {
+        verify(SshKeyType.RSA, "-t", "rsa", "-b", "2048");
+        verify(SshKeyType.RSA, "-t", "rsa", "-b", "3072");
+    }
+
+    @Test
+    public void testEd25519() throws Exception {
+        verify(SshKeyType.ED25519, "-t", "ed25519");
+    }
+
+    @Test
+    public void testEcdsa() throws Exception {
+        verify(SshKeyType.ECDSA_P256, "-t", "ecdsa", "-b", "256");
+        verify(SshKeyType.ECDSA_P384, "-t", "ecdsa", "-b", "384");
+        verify(SshKeyType.ECDSA_P521, "-t", "ecdsa", "-b", "521");
+    }
+
+    @Test
+    public void testSize() {
+
+        for (final SshKeyType type : SshKeyType.values()) {
+
+            // PREPARE
+            final PublicKey key = SshKeyPairGenerator
+                    .generateKeyPair(type, 1024).getPublic();
+
+            // TEST
+            final int size = SshPublicKeyEncoder.size(type, key);
+            final ByteBuffer buffer = ByteBuffer.allocate(size);
+            SshPublicKeyEncoder.encode(type, key, buffer);
+
+            // VERIFY
+            assertThat(buffer.hasRemaining()).isFalse();
+
+        }
+
+    }
+
+    private static void verify(final SshKeyType type, final String... args)
+            throws IOException, GeneralSecurityException {
+
+        // PREPARE
+        final File file = new File(DIR, type.getName());
+        final File pubFile = new File(DIR, type.getName() + ".pub");
+        final File result = new File(DIR, type.getName() + ".result");
+        FileUtils.forceMkdir(DIR);
+        FileUtils.deleteQuietly(file);
+        FileUtils.deleteQuietly(pubFile);
+        final String[] cmd = Arrays.copyOf(args, args.length + 7);
+        System.arraycopy(new String[] { "-q", "-N", "", "-C", "golden@test",
+                "-f", file.getPath() }, 0, cmd, args.length, 7);
+        SshTestUtils.sshKeygen(cmd);
+        final String expected = FileUtils.readFileToString(pubFile, US_ASCII);
+        final PublicKey key = decode(type, expected.split(" ")[1]);
+
+        // TEST
+        final byte[] base64 = SshPublicKeyEncoder.encodeBase64(type, key);
+        try (final FileChannel channel = FileChannel.open(result.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            SshPublicKeyEncoder.write(channel, type, base64, "golden@test");
+        }
+
+        // VERIFY
+        assertThat(FileUtils.readFileToString(result, US_ASCII))
+                .isEqualTo(expected);
+        assertThat(SshPublicKeyEncoder.toString(type, base64, "golden@test"))
+                .isEqualTo(expected.trim());
+
+    }
+
+    private static PublicKey decode(final SshKeyType type, final String base64)
+            throws GeneralSecurityException {
+        final ByteBuffer buffer = ByteBuffer
+                .wrap(Base64.getDecoder().decode(base64));
+        assertThat(new String(readString(buffer), US_ASCII))
+                .isEqualTo(type.getSshName());
+        if (type == SshKeyType.RSA) {
+            final BigInteger e = new BigInteger(readString(buffer));
+            final BigInteger n = new BigInteger(readString(buffer));
+            return KeyFactory.getInstance("RSA")
+                    .generatePublic(new RSAPublicKeySpec(n, e));
+        }
+        if (type == SshKeyType.ED25519) {
+            final byte[] raw = readString(buffer);
+            final byte[] encoded = Arrays.copyOf(ED25519_PREFIX,
+                    ED25519_PREFIX.length + raw.length);
+            System.arraycopy(raw, 0, encoded, ED25519_PREFIX.length,
+                    raw.length);
+            return KeyFactory
+                    .getInstance("Ed25519", BouncyCastleProvider.PROVIDER_NAME)
+                    .generatePublic(new X509EncodedKeySpec(encoded));
+        }
+        assertThat(new String(readString(buffer), US_ASCII))
+                .isEqualTo(type.getCurve());
+        final byte[] point = readString(buffer);
+        final int size = (point.length - 1) / 2;
+        final BigInteger x = new BigInteger(1,
+                Arrays.copyOfRange(point, 1, 1 + size));
+        final BigInteger y = new BigInteger(1,
+                Arrays.copyOfRange(point, 1 + size, point.length));
+        final AlgorithmParameters params = AlgorithmParameters
+                .getInstance("EC");
+        params.init(new ECGenParameterSpec(type.getCurveSpec()));
+        return KeyFactory.getInstance("EC")
+                .generatePublic(new ECPublicKeySpec(new ECPoint(x, y),
+                        params.getParameterSpec(ECParameterSpec.class)));
+    }
+
+    private static byte[] readString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+}
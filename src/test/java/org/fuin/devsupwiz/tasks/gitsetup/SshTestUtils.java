@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2015 Michael Schnell. All rights reserved. 
+ * http://www.fuin.org/
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see http://www.gnu.org/licenses/.
+ */
+package org.fuin.devsupwiz.tasks.gitsetup;
+
+import static java.nio.file.attribute.PosixFilePermission.OWNER_READ;
+import static java.nio.file.attribute.PosixFilePermission.OWNER_WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.EnumSet;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Helper methods for tests that verify keys with "ssh-keygen".
+ */
+final class SshTestUtils {
+
+    private static final Charset US_ASCII = Charset.forName("us-ascii");
+
+    /**
+     * Private utility class constructor.
+     */
+    private SshTestUtils() {
+        throw new UnsupportedOperationException(
+                "Cannot create an instance of a utility class");
+    }
+
+    /**
+     * Writes a private key that only the owner can read, as "ssh-keygen"
+     * refuses other files.
+     * 
+     * @param file
+     *            File to create.
+     * @param privateKey
+     *            Content of the file.
+     * 
+     * @throws IOException
+     *             Error writing the file.
+     */
+    static void writePrivateKey(final File file, final String privateKey)
+            throws IOException {
+        FileUtils.writeStringToFile(file, privateKey, US_ASCII);
+        Files.setPosixFilePermissions(file.toPath(),
+                EnumSet.of(OWNER_READ, OWNER_WRITE));
+    }
+
+    /**
+     * Executes "ssh-keygen" and verifies it succeeded.
+     * 
+     * @param args
+     *            Arguments for ssh-keygen.
+     * 
+     * @return Standard output without trailing whitespace.
+     * 
+     * @throws IOException
+     *             Error executing the command.
+     */
+    static String sshKeygen(final String... args) throws IOException {
+        final String[] cmd = new String[args.length + 1];
+        cmd[0] = "ssh-keygen";
+        System.arraycopy(args, 0, cmd, 1, args.length);
+        final Process process = new ProcessBuilder(cmd)
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        final String output = IOUtils.toString(process.getInputStream(),
+                US_ASCII);
+        try {
+            assertThat(process.waitFor()).isEqualTo(0);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted: " + String.join(" ", cmd), ex);
+        }
+        return output.trim();
+    }
+
+    /**
+     * Executes "ssh-keygen" and returns the exit code.
+     * 
+     * @param args
+     *            Arguments for ssh-keygen.
+     * 
+     * @return Exit code.
+     * 
+     * @throws IOException
+     *             Error executing the command.
+     */
+    static int sshKeygenStatus(final String... args) throws IOException {
+        final String[] cmd = new String[args.length + 1];
+        cmd[0] = "ssh-keygen";
+        System.arraycopy(args, 0, cmd, 1, args.length);
+        final Process process = new ProcessBuilder(cmd)
+                .redirectErrorStream(true).start();
+        IOUtils.toString(process.getInputStream(), US_ASCII);
+        try {
+            return process.waitFor();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted: " + String.join(" ", cmd), ex);
+        }
+    }
+
+}